@@ -4,7 +4,13 @@ import edu.ccrm.cli.CCRMCommandLineInterface;
 import edu.ccrm.config.AppConfig;
 import edu.ccrm.io.BackupService;
 import edu.ccrm.io.CsvImportExportService;
+import edu.ccrm.io.DurabilityMode;
+import edu.ccrm.io.FileJournal;
 import edu.ccrm.io.ImportExportService;
+import edu.ccrm.io.ImportPipeline;
+import edu.ccrm.io.ParallelCsvImporter;
+import edu.ccrm.io.SnapshotService;
+import edu.ccrm.io.TranscriptExportService;
 import edu.ccrm.service.*;
 import edu.ccrm.service.impl.*;
 import java.nio.file.Files;
@@ -14,6 +20,12 @@ import java.nio.file.Path;
  * Main entry point for the Campus Course & Records Manager (CCRM) application.
  */
 public class CCRMApplication {
+    private static final String JOURNAL_FILE = "ccrm.journal";
+    private static final String SNAPSHOT_FILE = "ccrm.snapshot";
+    private static final String DURABILITY_PROPERTY = "ccrm.journal.durability";
+    private static final String ENROLLMENT_STORAGE_PROPERTY = "ccrm.enrollment.storage";
+    private static final int TRANSCRIPT_CACHE_SIZE = 10_000;
+
     public static void main(String[] args) {
         try {
             // Initialize configuration
@@ -23,14 +35,44 @@ public class CCRMApplication {
             Files.createDirectories(config.getDataDirectory());
             Files.createDirectories(config.getBackupDirectory());
 
+            // Open the write-ahead journal; durability is set with -Dccrm.journal.durability
+            DurabilityMode durability = DurabilityMode.valueOf(
+                System.getProperty(DURABILITY_PROPERTY, DurabilityMode.GROUP_COMMIT.name()));
+            FileJournal journal = FileJournal.open(
+                config.getDataDirectory().resolve(JOURNAL_FILE), durability);
+
             // Initialize services
-            StudentService studentService = new DefaultStudentService();
-            CourseService courseService = new DefaultCourseService();
-            EnrollmentService enrollmentService = new DefaultEnrollmentService();
-            TranscriptService transcriptService = new DefaultTranscriptService(enrollmentService);
+            DefaultStudentService studentService = new DefaultStudentService(journal);
+            DefaultCourseService courseService = new DefaultCourseService(journal);
+            // Columnar enrollment storage trades write concurrency for a far smaller heap
+            RestorableEnrollmentService enrollmentService =
+                "columnar".equalsIgnoreCase(System.getProperty(ENROLLMENT_STORAGE_PROPERTY))
+                    ? new ColumnarEnrollmentService(journal)
+                    : new DefaultEnrollmentService(journal);
+            // Restore the last snapshot and replay the journal written since
+            Path snapshotFile = config.getDataDirectory().resolve(SNAPSHOT_FILE);
+            SnapshotService snapshotService = new SnapshotService(
+                studentService, courseService, enrollmentService);
+            long restoreStart = System.nanoTime();
+            SnapshotService.RestoreSummary restored = snapshotService.restore(snapshotFile, journal);
+            System.out.printf("Restored %d students, %d courses, %d enrollments and %d journal records in %d ms%n",
+                restored.students(), restored.courses(), restored.enrollments(),
+                restored.replayedRecords(), (System.nanoTime() - restoreStart) / 1_000_000);
+
+            CourseSearchService courseSearchService = new DefaultCourseSearchService(courseService);
+            TranscriptService transcriptService = new CachingTranscriptService(
+                new DefaultTranscriptService(enrollmentService), enrollmentService, courseService,
+                TRANSCRIPT_CACHE_SIZE);
             
+            TranscriptExportService transcriptExportService = new TranscriptExportService(
+                transcriptService, studentService, enrollmentService);
+
             ImportExportService importExportService = new CsvImportExportService(
-                studentService, courseService);
+                studentService, courseService, enrollmentService);
+            ImportPipeline importPipeline = new ImportPipeline(
+                studentService, courseService, enrollmentService);
+            ParallelCsvImporter parallelCsvImporter = new ParallelCsvImporter(
+                studentService, courseService, enrollmentService);
             
             BackupService backupService = new BackupService(
                 config.getDataDirectory(),
@@ -55,13 +97,21 @@ public class CCRMApplication {
             CCRMCommandLineInterface cli = new CCRMCommandLineInterface(
                 studentService,
                 courseService,
+                courseSearchService,
                 enrollmentService,
                 transcriptService,
+                transcriptExportService,
                 importExportService,
+                importPipeline,
+                parallelCsvImporter,
                 backupService
             );
             
             cli.start();
+            long snapshotSequence = journal.lastSequence();
+            snapshotService.writeSnapshot(snapshotFile, snapshotSequence);
+            journal.checkpoint(snapshotSequence);
+            journal.close();
         } catch (Exception e) {
             System.err.println("Error starting application: " + e.getMessage());
             e.printStackTrace();
@@ -5,35 +5,54 @@ import edu.ccrm.service.*;
 import edu.ccrm.io.*;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
 /**
  * Command Line Interface for the CCRM application.
  */
 public class CCRMCommandLineInterface {
+    private static final int SEARCH_RESULT_LIMIT = 20;
+    private static final int PAGE_SIZE = 20;
+
     private final Scanner scanner;
     private final StudentService studentService;
     private final CourseService courseService;
+    private final CourseSearchService courseSearchService;
     private final EnrollmentService enrollmentService;
     private final TranscriptService transcriptService;
+    private final TranscriptExportService transcriptExportService;
     private final ImportExportService importExportService;
+    private final ImportPipeline importPipeline;
+    private final ParallelCsvImporter parallelCsvImporter;
     private final BackupService backupService;
     private boolean running;
 
     public CCRMCommandLineInterface(
             StudentService studentService,
             CourseService courseService,
+            CourseSearchService courseSearchService,
             EnrollmentService enrollmentService,
             TranscriptService transcriptService,
+            TranscriptExportService transcriptExportService,
             ImportExportService importExportService,
+            ImportPipeline importPipeline,
+            ParallelCsvImporter parallelCsvImporter,
             BackupService backupService) {
         this.scanner = new Scanner(System.in);
         this.studentService = studentService;
         this.courseService = courseService;
+        this.courseSearchService = courseSearchService;
         this.enrollmentService = enrollmentService;
         this.transcriptService = transcriptService;
+        this.transcriptExportService = transcriptExportService;
         this.importExportService = importExportService;
+        this.importPipeline = importPipeline;
+        this.parallelCsvImporter = parallelCsvImporter;
         this.backupService = backupService;
     }
 
@@ -81,6 +100,7 @@ public class CCRMCommandLineInterface {
             System.out.println("2. List Students");
             System.out.println("3. Update Student");
             System.out.println("4. Deactivate Student");
+            System.out.println("5. Find Student");
             System.out.println("0. Back to Main Menu");
             System.out.print("\nEnter your choice: ");
 
@@ -89,6 +109,7 @@ public class CCRMCommandLineInterface {
                 case "2" -> listStudents();
                 case "3" -> updateStudent();
                 case "4" -> deactivateStudent();
+                case "5" -> findStudent();
                 case "0" -> {
                     return;
                 }
@@ -149,6 +170,7 @@ public class CCRMCommandLineInterface {
             System.out.println("1. Generate Student Transcript");
             System.out.println("2. Calculate Student GPA");
             System.out.println("3. Course Enrollment Report");
+            System.out.println("4. Export Cohort Transcripts");
             System.out.println("0. Back to Main Menu");
             System.out.print("\nEnter your choice: ");
 
@@ -156,6 +178,7 @@ public class CCRMCommandLineInterface {
                 case "1" -> generateTranscript();
                 case "2" -> calculateGPA();
                 case "3" -> courseEnrollmentReport();
+                case "4" -> exportTranscripts();
                 case "0" -> {
                     return;
                 }
@@ -169,12 +192,14 @@ public class CCRMCommandLineInterface {
             System.out.println("\nData Import/Export");
             System.out.println("1. Import Data");
             System.out.println("2. Export Data");
+            System.out.println("3. Import Data in Parallel");
             System.out.println("0. Back to Main Menu");
             System.out.print("\nEnter your choice: ");
 
             switch (scanner.nextLine().trim()) {
                 case "1" -> importData();
                 case "2" -> exportData();
+                case "3" -> importDataInParallel();
                 case "0" -> {
                     return;
                 }
@@ -222,12 +247,20 @@ public class CCRMCommandLineInterface {
     }
 
     private void listStudents() {
-        System.out.println("\nAll Students:");
-        List<Student> students = studentService.getAllStudents();
-        if (students.isEmpty()) {
+        System.out.println("\nAll Students (" + studentService.getActiveStudentCount() + " active):");
+        printPages(studentService::getStudents, "No students found.");
+    }
+
+    private void findStudent() {
+        System.out.print("Enter email or start of name: ");
+        String query = scanner.nextLine().trim();
+        List<Student> matches = query.contains("@")
+            ? studentService.findByEmail(query).stream().toList()
+            : studentService.searchByName(query, SEARCH_RESULT_LIMIT);
+        if (matches.isEmpty()) {
             System.out.println("No students found.");
         } else {
-            students.forEach(System.out::println);
+            matches.forEach(System.out::println);
         }
     }
 
@@ -275,10 +308,13 @@ public class CCRMCommandLineInterface {
         Semester semester = Semester.valueOf(scanner.nextLine().trim().toUpperCase());
         System.out.print("Enter department: ");
         String department = scanner.nextLine().trim();
+        System.out.print("Enter seat capacity (0 for unlimited): ");
+        String capacityInput = scanner.nextLine().trim();
+        int capacity = capacityInput.isEmpty() ? 0 : Integer.parseInt(capacityInput);
 
         try {
             Course course = courseService.createCourse(code, title, credits, 
-                instructor, semester, department);
+                instructor, semester, department, capacity);
             System.out.println("Course added successfully: " + course);
         } catch (Exception e) {
             System.out.println("Error adding course: " + e.getMessage());
@@ -287,12 +323,7 @@ public class CCRMCommandLineInterface {
 
     private void listCourses() {
         System.out.println("\nAll Courses:");
-        List<Course> courses = courseService.getAllCourses();
-        if (courses.isEmpty()) {
-            System.out.println("No courses found.");
-        } else {
-            courses.forEach(System.out::println);
-        }
+        printPages(courseService::getCourses, "No courses found.");
     }
 
     private void searchCourses() {
@@ -300,6 +331,7 @@ public class CCRMCommandLineInterface {
         System.out.println("1. Department");
         System.out.println("2. Semester");
         System.out.println("3. Instructor");
+        System.out.println("4. Code or Title");
         System.out.print("\nEnter your choice: ");
 
         switch (scanner.nextLine().trim()) {
@@ -326,6 +358,16 @@ public class CCRMCommandLineInterface {
                 courseService.getCoursesByInstructor(instructorId)
                     .forEach(System.out::println);
             }
+            case "4" -> {
+                System.out.print("Enter search terms: ");
+                List<Course> matches = courseSearchService.search(
+                    scanner.nextLine().trim(), SEARCH_RESULT_LIMIT);
+                if (matches.isEmpty()) {
+                    System.out.println("No courses found.");
+                } else {
+                    matches.forEach(System.out::println);
+                }
+            }
             default -> System.out.println("Invalid choice.");
         }
     }
@@ -436,6 +478,59 @@ public class CCRMCommandLineInterface {
         );
     }
 
+    private void exportTranscripts() {
+        System.out.println("Export transcripts for:");
+        System.out.println("1. All Active Students");
+        System.out.println("2. Department");
+        System.out.println("3. Registration Numbers");
+        System.out.print("Enter your choice: ");
+
+        Stream<Student> cohort;
+        switch (scanner.nextLine().trim()) {
+            case "1" -> cohort = transcriptExportService.activeStudents();
+            case "2" -> {
+                System.out.print("Enter department: ");
+                cohort = transcriptExportService.departmentStudents(scanner.nextLine().trim());
+            }
+            case "3" -> {
+                System.out.print("Enter registration numbers (comma separated): ");
+                cohort = Arrays.stream(scanner.nextLine().split(","))
+                    .map(String::trim)
+                    .filter(regNo -> !regNo.isEmpty())
+                    .map(regNo -> studentService.getStudent(regNo).orElseGet(() -> {
+                        System.out.println("Student not found: " + regNo);
+                        return null;
+                    }))
+                    .filter(Objects::nonNull);
+            }
+            default -> {
+                System.out.println("Invalid choice.");
+                return;
+            }
+        }
+
+        System.out.print("Enter output directory, or a path ending in .zip for an archive: ");
+        Path target = Path.of(scanner.nextLine().trim());
+        TranscriptExportService.ProgressListener progress = (written, failed) -> {
+            if ((written + failed) % 1000 == 0) {
+                System.out.printf("  %d written, %d failed%n", written, failed);
+            }
+        };
+        try {
+            TranscriptExportService.ExportSummary summary = target.toString().endsWith(".zip")
+                ? transcriptExportService.exportToZip(cohort, target, progress)
+                : transcriptExportService.exportToDirectory(cohort, target, progress);
+            System.out.printf("Exported %d transcripts to %s in %d ms%n",
+                summary.written(), target, summary.elapsedMillis());
+            if (summary.failed() > 0) {
+                System.out.printf("%d transcripts failed:%n", summary.failed());
+                summary.failures().forEach(failure -> System.out.println("  " + failure));
+            }
+        } catch (IOException e) {
+            System.out.println("Error exporting transcripts: " + e.getMessage());
+        }
+    }
+
     private void calculateGPA() {
         System.out.print("Enter student registration number: ");
         String regNo = scanner.nextLine().trim();
@@ -455,14 +550,14 @@ public class CCRMCommandLineInterface {
 
         courseService.getCourse(courseCode).ifPresentOrElse(
             course -> {
-                List<Enrollment> enrollments = enrollmentService
-                    .getEnrollmentsForCourse(course);
                 System.out.println("\nEnrollments for " + course.getCode() + 
                     " - " + course.getTitle());
-                if (enrollments.isEmpty()) {
-                    System.out.println("No enrollments found.");
-                } else {
-                    enrollments.forEach(System.out::println);
+                printPages((token, size) -> enrollmentService.getEnrollmentsForCourse(course, token, size),
+                    "No enrollments found.");
+                List<Student> waitlist = enrollmentService.getWaitlist(course);
+                if (!waitlist.isEmpty()) {
+                    System.out.println("Waitlist (" + waitlist.size() + "):");
+                    waitlist.forEach(System.out::println);
                 }
             },
             () -> System.out.println("Course not found.")
@@ -470,20 +565,47 @@ public class CCRMCommandLineInterface {
     }
 
     private void importData() {
-        try {
-            System.out.print("Enter path to students CSV file: ");
-            String studentsPath = scanner.nextLine().trim();
-            importExportService.importStudents(Path.of(studentsPath));
+        System.out.print("Enter path to students CSV file: ");
+        Path studentsPath = Path.of(scanner.nextLine().trim());
+        System.out.print("Enter path to courses CSV file: ");
+        Path coursesPath = Path.of(scanner.nextLine().trim());
+        System.out.print("Enter path to enrollments CSV file: ");
+        Path enrollmentsPath = Path.of(scanner.nextLine().trim());
+        System.out.print("Enter path for rejected rows [import-errors.csv]: ");
+        String errorsInput = scanner.nextLine().trim();
+        Path errorsPath = Path.of(errorsInput.isEmpty() ? "import-errors.csv" : errorsInput);
 
-            System.out.print("Enter path to courses CSV file: ");
-            String coursesPath = scanner.nextLine().trim();
-            importExportService.importCourses(Path.of(coursesPath));
+        try {
+            ImportPipeline.PipelineSummary summary = importPipeline.run(studentsPath, coursesPath,
+                enrollmentsPath, errorsPath, progress -> System.out.println("  " + progress));
+            System.out.println("Students: " + summary.students());
+            System.out.println("Courses: " + summary.courses());
+            System.out.println("Enrollments: " + summary.enrollments());
+            System.out.printf("Data imported in %d ms.%n", summary.elapsedMillis());
+            if (summary.rejected() > 0) {
+                System.out.println(summary.rejected() + " rejected rows written to " + errorsPath);
+            }
+        } catch (IOException e) {
+            System.out.println("Error importing data: " + e.getMessage());
+        }
+    }
 
-            System.out.print("Enter path to enrollments CSV file: ");
-            String enrollmentsPath = scanner.nextLine().trim();
-            importExportService.importEnrollments(Path.of(enrollmentsPath));
+    private void importDataInParallel() {
+        System.out.print("Enter path to students CSV file: ");
+        Path studentsPath = Path.of(scanner.nextLine().trim());
+        System.out.print("Enter path to courses CSV file: ");
+        Path coursesPath = Path.of(scanner.nextLine().trim());
+        System.out.print("Enter path to enrollments CSV file: ");
+        Path enrollmentsPath = Path.of(scanner.nextLine().trim());
 
-            System.out.println("Data imported successfully.");
+        try {
+            long start = System.nanoTime();
+            List<ImportExportService.ImportSummary> summaries =
+                parallelCsvImporter.importAll(studentsPath, coursesPath, enrollmentsPath);
+            System.out.println("Students: " + summaries.get(0));
+            System.out.println("Courses: " + summaries.get(1));
+            System.out.println("Enrollments: " + summaries.get(2));
+            System.out.printf("Data imported in %d ms.%n", (System.nanoTime() - start) / 1_000_000);
         } catch (IOException e) {
             System.out.println("Error importing data: " + e.getMessage());
         }
@@ -536,4 +658,26 @@ public class CCRMCommandLineInterface {
             System.out.println("Error listing backup contents: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Prints results one page at a time, asking before fetching the next page.
+     */
+    private <T> void printPages(BiFunction<String, Integer, Page<T>> fetch, String emptyMessage) {
+        Page<T> page = fetch.apply(null, PAGE_SIZE);
+        if (page.items().isEmpty()) {
+            System.out.println(emptyMessage);
+            return;
+        }
+        while (true) {
+            page.items().forEach(System.out::println);
+            if (!page.hasNext()) {
+                return;
+            }
+            System.out.print("-- Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = fetch.apply(page.nextToken(), PAGE_SIZE);
+        }
+    }
+}
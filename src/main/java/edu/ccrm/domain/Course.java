@@ -1,26 +1,47 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.util.SymbolTable;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a course in the system.
  * Uses the Builder pattern for flexible object creation.
+ *
+ * <p>Departments and instructors repeat across thousands of courses, so they
+ * are dictionary-encoded: each course stores an int code from a shared
+ * {@link SymbolTable} and every course with the same value returns the same
+ * String instance.
  */
 public class Course {
+    /**
+     * Mutable properties reported to {@link CourseListener}s.
+     */
+    public enum Property {
+        TITLE, CREDITS, INSTRUCTOR, SEMESTER, DEPARTMENT, CAPACITY
+    }
+
+    private static final SymbolTable DEPARTMENTS = new SymbolTable();
+    private static final SymbolTable INSTRUCTORS = new SymbolTable();
+
     private final String code;
     private String title;
     private int credits;
-    private String instructor;
+    private int instructorCode;
     private Semester semester;
-    private String department;
+    private int departmentCode;
+    private int capacity;
+    private volatile List<CourseListener> listeners;
 
     private Course(Builder builder) {
         this.code = builder.code;
         this.title = builder.title;
         this.credits = builder.credits;
-        this.instructor = builder.instructor;
+        this.instructorCode = INSTRUCTORS.intern(builder.instructor);
         this.semester = builder.semester;
-        this.department = builder.department;
+        this.departmentCode = DEPARTMENTS.intern(builder.department);
+        this.capacity = builder.capacity;
     }
 
     // Getters
@@ -33,7 +54,11 @@ public class Course {
     }
 
     public void setTitle(String title) {
+        String oldValue = this.title;
         this.title = title;
+        if (!Objects.equals(oldValue, title)) {
+            fireChange(Property.TITLE, oldValue, title);
+        }
     }
 
     public int getCredits() {
@@ -41,15 +66,30 @@ public class Course {
     }
 
     public void setCredits(int credits) {
+        int oldValue = this.credits;
         this.credits = credits;
+        if (oldValue != credits) {
+            fireChange(Property.CREDITS, oldValue, credits);
+        }
     }
 
     public String getInstructor() {
-        return instructor;
+        return INSTRUCTORS.valueOf(instructorCode);
+    }
+
+    /**
+     * Returns the dictionary code of the instructor, or {@link SymbolTable#NONE} if unset.
+     */
+    public int getInstructorCode() {
+        return instructorCode;
     }
 
     public void setInstructor(String instructor) {
-        this.instructor = instructor;
+        int oldCode = this.instructorCode;
+        this.instructorCode = INSTRUCTORS.intern(instructor);
+        if (oldCode != instructorCode) {
+            fireChange(Property.INSTRUCTOR, INSTRUCTORS.valueOf(oldCode), getInstructor());
+        }
     }
 
     public Semester getSemester() {
@@ -57,15 +97,113 @@ public class Course {
     }
 
     public void setSemester(Semester semester) {
+        Semester oldValue = this.semester;
         this.semester = semester;
+        if (oldValue != semester) {
+            fireChange(Property.SEMESTER, oldValue, semester);
+        }
     }
 
     public String getDepartment() {
-        return department;
+        return DEPARTMENTS.valueOf(departmentCode);
+    }
+
+    /**
+     * Returns the dictionary code of the department, or {@link SymbolTable#NONE} if unset.
+     */
+    public int getDepartmentCode() {
+        return departmentCode;
     }
 
     public void setDepartment(String department) {
-        this.department = department;
+        int oldCode = this.departmentCode;
+        this.departmentCode = DEPARTMENTS.intern(department);
+        if (oldCode != departmentCode) {
+            fireChange(Property.DEPARTMENT, DEPARTMENTS.valueOf(oldCode), getDepartment());
+        }
+    }
+
+    /**
+     * Returns the dictionary code of a department name, or {@link SymbolTable#NONE}
+     * if no course has ever used it.
+     */
+    public static int departmentCode(String department) {
+        return DEPARTMENTS.codeOf(department);
+    }
+
+    /**
+     * Returns the dictionary code of an instructor, or {@link SymbolTable#NONE}
+     * if no course has ever used it.
+     */
+    public static int instructorCode(String instructor) {
+        return INSTRUCTORS.codeOf(instructor);
+    }
+
+    /**
+     * Returns the shared instance of a department name, interning it if new.
+     * Lets bulk parsers drop their per-row copies straight away.
+     */
+    public static String canonicalDepartment(String department) {
+        return DEPARTMENTS.valueOf(DEPARTMENTS.intern(department));
+    }
+
+    /**
+     * Returns the shared instance of an instructor, interning it if new.
+     */
+    public static String canonicalInstructor(String instructor) {
+        return INSTRUCTORS.valueOf(INSTRUCTORS.intern(instructor));
+    }
+
+    /**
+     * Returns the seat limit of the course; zero means unlimited.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        int oldValue = this.capacity;
+        this.capacity = capacity;
+        if (oldValue != capacity) {
+            fireChange(Property.CAPACITY, oldValue, capacity);
+        }
+    }
+
+    /**
+     * Registers a listener for property changes. Adding the same listener twice has no effect.
+     */
+    public void addListener(CourseListener listener) {
+        List<CourseListener> current = listeners;
+        if (current != null && current.contains(listener)) {
+            return;
+        }
+        synchronized (this) {
+            addListenerLocked(listener);
+        }
+    }
+
+    private void addListenerLocked(CourseListener listener) {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public synchronized void removeListener(CourseListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    private void fireChange(Property property, Object oldValue, Object newValue) {
+        List<CourseListener> current = listeners;
+        if (current != null) {
+            for (CourseListener listener : current) {
+                listener.courseChanged(this, property, oldValue, newValue);
+            }
+        }
     }
 
     @Override
@@ -83,7 +221,7 @@ public class Course {
     @Override
     public String toString() {
         return String.format("%s: %s (%d credits) - %s, %s", 
-            code, title, credits, department, semester);
+            code, title, credits, getDepartment(), semester);
     }
 
     /**
@@ -96,6 +234,7 @@ public class Course {
         private String instructor;
         private Semester semester;
         private String department;
+        private int capacity;
 
         public Builder(String code) {
             this.code = code;
@@ -126,6 +265,11 @@ public class Course {
             return this;
         }
 
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
         public Course build() {
             return new Course(this);
         }
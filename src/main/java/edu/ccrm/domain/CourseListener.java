@@ -0,0 +1,9 @@
+package edu.ccrm.domain;
+
+/**
+ * Callback notified when a property of a course changes.
+ */
+@FunctionalInterface
+public interface CourseListener {
+    void courseChanged(Course course, Course.Property property, Object oldValue, Object newValue);
+}
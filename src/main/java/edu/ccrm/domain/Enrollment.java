@@ -13,9 +13,13 @@ public class Enrollment {
     private Grade grade;
 
     public Enrollment(Student student, Course course) {
+        this(student, course, LocalDateTime.now());
+    }
+
+    public Enrollment(Student student, Course course, LocalDateTime enrollmentDate) {
         this.student = student;
         this.course = course;
-        this.enrollmentDate = LocalDateTime.now();
+        this.enrollmentDate = enrollmentDate;
     }
 
     public Student getStudent() {
@@ -56,6 +60,6 @@ public class Enrollment {
         return String.format("Enrollment: %s in %s [Grade: %s]",
             student.getRegNo(),
             course.getCode(),
-            grade != null ? grade : "Not Graded");
+            getGrade() != null ? getGrade() : "Not Graded");
     }
 }
\ No newline at end of file
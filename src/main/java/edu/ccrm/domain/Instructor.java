@@ -11,7 +11,7 @@ public class Instructor extends Person {
     private String department;
     private final List<Course> courses;
 
-    public Instructor(String id, String fullName, String email, String department) {
+    public Instructor(long id, String fullName, String email, String department) {
         super(id, fullName, email);
         this.department = department;
         this.courses = new ArrayList<>();
@@ -1,27 +1,53 @@
 package edu.ccrm.domain;
 
+import edu.ccrm.util.IdGenerator;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstract base class for all persons in the system.
  */
 public abstract class Person {
-    private final String id;
-    private String fullName;
-    private String email;
+    /**
+     * Mutable properties reported to {@link PersonListener}s. ACTIVE applies to students only.
+     */
+    public enum Property {
+        FULL_NAME, EMAIL, ACTIVE
+    }
+
+    private final long id;
+    private volatile String fullName;
+    private volatile String email;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private volatile List<PersonListener> listeners;
+
+    protected Person(long id, String fullName, String email) {
+        this(id, fullName, email, LocalDateTime.now(), LocalDateTime.now());
+    }
 
-    protected Person(String id, String fullName, String email) {
+    /**
+     * Recreates a person with previously recorded timestamps, e.g. when restoring a snapshot.
+     */
+    protected Person(long id, String fullName, String email,
+                     LocalDateTime createdAt, LocalDateTime updatedAt) {
         this.id = id;
         this.fullName = fullName;
         this.email = email;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
     }
 
+    /**
+     * Returns the ID rendered for display and persistence; see {@link IdGenerator#format}.
+     */
     public String getId() {
+        return IdGenerator.format(id);
+    }
+
+    public long getIdValue() {
         return id;
     }
 
@@ -30,8 +56,12 @@ public abstract class Person {
     }
 
     public void setFullName(String fullName) {
+        String oldValue = this.fullName;
         this.fullName = fullName;
         this.updatedAt = LocalDateTime.now();
+        if (!Objects.equals(oldValue, fullName)) {
+            fireChange(Property.FULL_NAME, oldValue, fullName);
+        }
     }
 
     public String getEmail() {
@@ -39,8 +69,12 @@ public abstract class Person {
     }
 
     public void setEmail(String email) {
+        String oldValue = this.email;
         this.email = email;
         this.updatedAt = LocalDateTime.now();
+        if (!Objects.equals(oldValue, email)) {
+            fireChange(Property.EMAIL, oldValue, email);
+        }
     }
 
     public LocalDateTime getCreatedAt() {
@@ -51,6 +85,39 @@ public abstract class Person {
         return updatedAt;
     }
 
+    /**
+     * Registers a listener for property changes. Adding the same listener twice has no effect.
+     */
+    public void addListener(PersonListener listener) {
+        List<PersonListener> current = listeners;
+        if (current != null && current.contains(listener)) {
+            return;
+        }
+        synchronized (this) {
+            if (listeners == null) {
+                listeners = new CopyOnWriteArrayList<>();
+            }
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+        }
+    }
+
+    public synchronized void removeListener(PersonListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    protected void fireChange(Property property, Object oldValue, Object newValue) {
+        List<PersonListener> current = listeners;
+        if (current != null) {
+            for (PersonListener listener : current) {
+                listener.personChanged(this, property, oldValue, newValue);
+            }
+        }
+    }
+
     // Abstract method that each type of person must implement
     public abstract String getRole();
 
@@ -58,17 +125,17 @@ public abstract class Person {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Person person)) return false;
-        return Objects.equals(id, person.id);
+        return id == person.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Long.hashCode(id);
     }
 
     @Override
     public String toString() {
         return String.format("[%s] %s (%s) - %s", 
-            id, fullName, email, getRole());
+            getId(), fullName, email, getRole());
     }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package edu.ccrm.domain;
+
+/**
+ * Callback notified when a property of a person changes.
+ */
+@FunctionalInterface
+public interface PersonListener {
+    void personChanged(Person person, Person.Property property, Object oldValue, Object newValue);
+}
@@ -1,22 +1,28 @@
 package edu.ccrm.domain;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a student in the system.
  */
 public class Student extends Person {
     private final String regNo;
-    private boolean active;
-    private final List<Enrollment> enrollments;
+    private volatile boolean active;
+    private final CopyOnWriteArrayList<Enrollment> enrollments;
 
-    public Student(String id, String regNo, String fullName, String email) {
-        super(id, fullName, email);
+    public Student(long id, String regNo, String fullName, String email) {
+        this(id, regNo, fullName, email, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    public Student(long id, String regNo, String fullName, String email,
+                   LocalDateTime createdAt, LocalDateTime updatedAt) {
+        super(id, fullName, email, createdAt, updatedAt);
         this.regNo = regNo;
         this.active = true;
-        this.enrollments = new ArrayList<>();
+        this.enrollments = new CopyOnWriteArrayList<>();
     }
 
     public String getRegNo() {
@@ -28,7 +34,11 @@ public class Student extends Person {
     }
 
     public void setActive(boolean active) {
+        boolean oldValue = this.active;
         this.active = active;
+        if (oldValue != active) {
+            fireChange(Property.ACTIVE, oldValue, active);
+        }
     }
 
     public List<Enrollment> getEnrollments() {
@@ -36,8 +46,8 @@ public class Student extends Person {
     }
 
     public void addEnrollment(Enrollment enrollment) {
-        if (enrollment != null && !enrollments.contains(enrollment)) {
-            enrollments.add(enrollment);
+        if (enrollment != null) {
+            enrollments.addIfAbsent(enrollment);
         }
     }
 
@@ -1,7 +1,12 @@
 package edu.ccrm.io;
 
 import edu.ccrm.domain.*;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseLoad;
 import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentLoad;
 import edu.ccrm.service.StudentService;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -10,145 +15,172 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * CSV-based implementation of ImportExportService.
+ *
+ * <p>Files are read with {@link CsvReader} and written with {@link CsvWriter},
+ * so names and titles containing commas, quotes or line breaks survive a
+ * round trip. Rows are handed to the services' bulk load methods in
+ * batches, so imported enrollments are registered with the enrollment
+ * service and count towards GPA and transcripts.
  */
 public class CsvImportExportService implements ImportExportService {
-    private static final String DELIMITER = ",";
-    private static final DateTimeFormatter DATE_FORMATTER = 
+    private static final Semester[] SEMESTERS = Semester.values();
+    private static final Grade[] GRADES = Grade.values();
+    private static final int BATCH_ROWS = 1024;
+    /** The format of exported enrollment dates, shared with the other importers. */
+    static final DateTimeFormatter DATE_FORMATTER = 
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final StudentService studentService;
     private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
 
-    public CsvImportExportService(StudentService studentService, CourseService courseService) {
+    public CsvImportExportService(StudentService studentService, CourseService courseService,
+                                  EnrollmentService enrollmentService) {
         this.studentService = studentService;
         this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
     }
 
     @Override
     public List<Student> importStudents(Path file) throws IOException {
         List<Student> students = new ArrayList<>();
-        List<String> lines = Files.readAllLines(file);
-        
-        // Skip header
-        for (int i = 1; i < lines.size(); i++) {
-            String[] parts = lines.get(i).split(DELIMITER);
-            if (parts.length >= 4) {
-                String regNo = parts[0].trim();
-                String fullName = parts[1].trim();
-                String email = parts[2].trim();
-                boolean isActive = Boolean.parseBoolean(parts[3].trim());
-
-                Student student = studentService.createStudent(regNo, fullName, email);
-                student.setActive(isActive);
-                students.add(student);
-            }
-        }
+        importStudents(file, students::add);
         return students;
     }
 
     @Override
     public List<Course> importCourses(Path file) throws IOException {
         List<Course> courses = new ArrayList<>();
-        List<String> lines = Files.readAllLines(file);
-        
-        // Skip header
-        for (int i = 1; i < lines.size(); i++) {
-            String[] parts = lines.get(i).split(DELIMITER);
-            if (parts.length >= 6) {
-                String code = parts[0].trim();
-                String title = parts[1].trim();
-                int credits = Integer.parseInt(parts[2].trim());
-                String instructor = parts[3].trim();
-                Semester semester = Semester.valueOf(parts[4].trim());
-                String department = parts[5].trim();
-
-                Course course = courseService.createCourse(code, title, credits, 
-                    instructor, semester, department);
-                courses.add(course);
-            }
-        }
+        importCourses(file, courses::add);
         return courses;
     }
 
     @Override
     public List<Enrollment> importEnrollments(Path file) throws IOException {
         List<Enrollment> enrollments = new ArrayList<>();
-        List<String> lines = Files.readAllLines(file);
-        
-        // Skip header
-        for (int i = 1; i < lines.size(); i++) {
-            String[] parts = lines.get(i).split(DELIMITER);
-            if (parts.length >= 4) {
-                String studentRegNo = parts[0].trim();
-                String courseCode = parts[1].trim();
-                String gradeStr = parts[3].trim();
-
-                studentService.getStudent(studentRegNo).ifPresent(student -> 
-                    courseService.getCourse(courseCode).ifPresent(course -> {
-                        Enrollment enrollment = new Enrollment(student, course);
-                        if (!gradeStr.isEmpty()) {
-                            enrollment.setGrade(Grade.valueOf(gradeStr));
+        importEnrollments(file, enrollments::add);
+        return enrollments;
+    }
+
+    @Override
+    public ImportSummary importStudents(Path file, Consumer<? super Student> sink) throws IOException {
+        return loadRows(file, row -> {
+            if (row.fieldCount() < 4) {
+                return null;
+            }
+            return new StudentLoad(row.string(0), row.string(1), row.string(2), row.booleanField(3));
+        }, studentService::loadStudents, sink);
+    }
+
+    @Override
+    public ImportSummary importCourses(Path file, Consumer<? super Course> sink) throws IOException {
+        return loadRows(file, row -> {
+            if (row.fieldCount() < 6) {
+                return null;
+            }
+            String code = row.string(0);
+            String title = row.string(1);
+            int credits = row.intField(2);
+            String instructor = Course.canonicalInstructor(row.string(3));
+            Semester semester = row.enumField(4, SEMESTERS);
+            String department = Course.canonicalDepartment(row.string(5));
+            int capacity = row.fieldCount() >= 7 ? row.intField(6) : 0;
+            return new CourseLoad(code, title, credits, instructor, semester, department, capacity);
+        }, courseService::loadCourses, sink);
+    }
+
+    @Override
+    public ImportSummary importEnrollments(Path file, Consumer<? super Enrollment> sink) throws IOException {
+        return loadRows(file, row -> {
+            if (row.fieldCount() < 4) {
+                return null;
+            }
+            LocalDateTime enrolledAt = row.isEmpty(2) ? null : LocalDateTime.parse(row.field(2), DATE_FORMATTER);
+            Grade grade = row.isEmpty(3) ? null : row.enumField(3, GRADES);
+            return new EnrollmentLoad(row.string(0), row.string(1), enrolledAt, grade);
+        }, batch -> enrollmentService.loadEnrollments(batch, studentService, courseService), sink);
+    }
+
+    /**
+     * Reads a CSV file one record at a time, skipping the header, and hands
+     * the parsed rows to the loader in batches of {@value #BATCH_ROWS}. Only
+     * the current batch is held.
+     */
+    private <R, T> ImportSummary loadRows(Path file, RowParser<R> parser,
+                                          Function<List<R>, BulkLoadResult<T>> loader,
+                                          Consumer<? super T> sink) throws IOException {
+        long rows = 0;
+        long imported = 0;
+        List<R> batch = new ArrayList<>(BATCH_ROWS);
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file))) {
+            // Skip header
+            if (reader.next()) {
+                while (reader.next()) {
+                    rows++;
+                    R parsed = parser.parse(reader);
+                    if (parsed != null) {
+                        batch.add(parsed);
+                        if (batch.size() == BATCH_ROWS) {
+                            imported += load(batch, loader, sink);
                         }
-                        enrollments.add(enrollment);
-                    })
-                );
+                    }
+                }
             }
         }
-        return enrollments;
+        imported += load(batch, loader, sink);
+        return new ImportSummary(rows, imported, rows - imported);
+    }
+
+    private static <R, T> int load(List<R> batch, Function<List<R>, BulkLoadResult<T>> loader,
+                                   Consumer<? super T> sink) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<BulkLoadResult.Loaded<T>> loaded = loader.apply(batch).getLoaded();
+        loaded.forEach(row -> sink.accept(row.item()));
+        batch.clear();
+        return loaded.size();
     }
 
     @Override
     public void exportStudents(List<Student> students, Path file) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("regNo,fullName,email,status");
-        
-        lines.addAll(students.stream()
-            .map(s -> String.join(DELIMITER,
-                s.getRegNo(),
-                s.getFullName(),
-                s.getEmail(),
-                String.valueOf(s.isActive())))
-            .collect(Collectors.toList()));
-
-        Files.write(file, lines);
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file))) {
+            csv.record("regNo", "fullName", "email", "status");
+            for (Student s : students) {
+                csv.field(s.getRegNo()).field(s.getFullName()).field(s.getEmail()).field(s.isActive());
+                csv.endRecord();
+            }
+        }
     }
 
     @Override
     public void exportCourses(List<Course> courses, Path file) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("code,title,credits,instructor,semester,department");
-        
-        lines.addAll(courses.stream()
-            .map(c -> String.join(DELIMITER,
-                c.getCode(),
-                c.getTitle(),
-                String.valueOf(c.getCredits()),
-                c.getInstructor(),
-                c.getSemester().name(),
-                c.getDepartment()))
-            .collect(Collectors.toList()));
-
-        Files.write(file, lines);
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file))) {
+            csv.record("code", "title", "credits", "instructor", "semester", "department", "capacity");
+            for (Course c : courses) {
+                csv.field(c.getCode()).field(c.getTitle()).field(c.getCredits()).field(c.getInstructor())
+                    .field(c.getSemester().name()).field(c.getDepartment()).field(c.getCapacity());
+                csv.endRecord();
+            }
+        }
     }
 
     @Override
     public void exportEnrollments(List<Enrollment> enrollments, Path file) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("studentRegNo,courseCode,enrollmentDate,grade");
-        
-        lines.addAll(enrollments.stream()
-            .map(e -> String.join(DELIMITER,
-                e.getStudent().getRegNo(),
-                e.getCourse().getCode(),
-                e.getEnrollmentDate().format(DATE_FORMATTER),
-                e.getGrade() != null ? e.getGrade().name() : ""))
-            .collect(Collectors.toList()));
-
-        Files.write(file, lines);
+        try (CsvWriter csv = new CsvWriter(Files.newBufferedWriter(file))) {
+            csv.record("studentRegNo", "courseCode", "enrollmentDate", "grade");
+            for (Enrollment e : enrollments) {
+                csv.field(e.getStudent().getRegNo()).field(e.getCourse().getCode())
+                    .field(e.getEnrollmentDate().format(DATE_FORMATTER))
+                    .field(e.getGrade() != null ? e.getGrade().name() : "");
+                csv.endRecord();
+            }
+        }
     }
 
     @Override
@@ -163,4 +195,12 @@ public class CsvImportExportService implements ImportExportService {
         // exportEnrollments(enrollmentService.getAllEnrollments(), 
         //    directory.resolve("enrollments.csv"));
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface RowParser<R> {
+        /**
+         * @return the row's load request, or null to skip a row with too few fields
+         */
+        R parse(CsvReader row);
+    }
+}
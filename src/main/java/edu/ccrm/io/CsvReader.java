@@ -0,0 +1,387 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads CSV records as defined by RFC 4180 from a character stream.
+ *
+ * <p>A field may be enclosed in double quotes, in which case it can contain
+ * commas, line breaks and quotes written as two double quotes. Records end
+ * at CRLF, LF or CR. Unquoted fields are trimmed of surrounding spaces and
+ * tabs; quoted fields are kept exactly, and spaces around the quotes are
+ * ignored. Characters after a closing quote are kept, for files written
+ * with stray quotes.
+ *
+ * <p>Fields are returned as {@link CharSequence} views over a buffer that is
+ * reused for every record, so reading allocates nothing once the buffers
+ * have grown to the longest record. A view is only valid until the next
+ * call to {@link #next}; use {@code toString()} to keep a value. Numbers,
+ * booleans and enum constants are parsed straight from the buffer.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final Reader in;
+    private final char[] input;
+    private int inputPosition;
+    private int inputLimit;
+    private boolean endOfInput;
+
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private Field[] fields = new Field[16];
+    private int fieldCount;
+
+    private long lineNumber = 1;
+    private long recordLine;
+
+    public CsvReader(Reader in) {
+        this(in, BUFFER_CHARS);
+    }
+
+    CsvReader(Reader in, int bufferChars) {
+        this.in = in;
+        this.input = new char[bufferChars];
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false at the end of the input
+     * @throws IOException if reading fails or the input ends inside a quoted field
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        recordLine = lineNumber;
+        while (true) {
+            c = readField(c);
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                lineNumber++;
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads one field starting with character c, into the record buffer.
+     *
+     * @return the character that ended it: ',', '\r', '\n' or -1
+     */
+    private int readField(int c) throws IOException {
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+        int start = recordLength;
+        int keep = start;
+        if (c == '"') {
+            long openedOn = lineNumber;
+            while (true) {
+                c = copyUntil(true);
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field starting on line " + openedOn);
+                }
+                if (c == '"') {
+                    if (peek() != '"') {
+                        break;
+                    }
+                    read();
+                } else if (c == '\n' || peek() != '\n') {
+                    lineNumber++;
+                }
+                put((char) c);
+            }
+            keep = recordLength;
+            c = read();
+            while (c == ' ' || c == '\t') {
+                c = read();
+            }
+        }
+        // Unquoted text, or anything after a closing quote
+        if (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+            put((char) c);
+            c = copyUntil(false);
+        }
+        int end = recordLength;
+        while (end > keep && (record[end - 1] == ' ' || record[end - 1] == '\t')) {
+            end--;
+        }
+        addField(start, end);
+        return c;
+    }
+
+    /**
+     * Copies input into the record up to the next line break, or the next
+     * comma outside quotes or quote inside them, a buffer-load at a time.
+     *
+     * @return the character that stopped the copy, consumed, or -1 at the end of the input
+     */
+    private int copyUntil(boolean quoted) throws IOException {
+        char stop = quoted ? '"' : ',';
+        while (true) {
+            char[] in = input;
+            int from = inputPosition;
+            int limit = inputLimit;
+            int p = from;
+            while (p < limit) {
+                char ch = in[p];
+                if (ch == stop || ch == '\n' || ch == '\r') {
+                    break;
+                }
+                p++;
+            }
+            int length = p - from;
+            if (recordLength + length > record.length) {
+                record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + length));
+            }
+            System.arraycopy(in, from, record, recordLength, length);
+            recordLength += length;
+            if (p < limit) {
+                inputPosition = p + 1;
+                return in[p];
+            }
+            inputPosition = p;
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            fields = Arrays.copyOf(fields, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void put(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, recordLength * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (inputPosition == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPosition++];
+    }
+
+    private int peek() throws IOException {
+        if (inputPosition == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPosition];
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int n;
+        do {
+            n = in.read(input, 0, input.length);
+        } while (n == 0);
+        if (n < 0) {
+            endOfInput = true;
+            return false;
+        }
+        inputPosition = 0;
+        inputLimit = n;
+        return true;
+    }
+
+    /**
+     * Returns the number of fields in the current record. A blank line is a
+     * record with one empty field.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the line on which the current record starts, counting from one.
+     */
+    public long lineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * Returns a view of a field of the current record, valid until the next
+     * call to {@link #next}.
+     */
+    public CharSequence field(int index) {
+        checkIndex(index);
+        Field field = fields[index];
+        if (field == null) {
+            field = new Field(index);
+            fields[index] = field;
+        }
+        return field;
+    }
+
+    /**
+     * Returns a field as a new String.
+     */
+    public String string(int index) {
+        checkIndex(index);
+        return new String(record, starts[index], ends[index] - starts[index]);
+    }
+
+    /**
+     * Parses a field as a decimal int, as {@link Integer#parseInt} would.
+     *
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int intField(int index) {
+        checkIndex(index);
+        int i = starts[index];
+        int end = ends[index];
+        boolean negative = i < end && record[i] == '-';
+        if (i < end && (record[i] == '-' || record[i] == '+')) {
+            i++;
+        }
+        if (i == end) {
+            throw numberFormat(index);
+        }
+        // Accumulate negatively so Integer.MIN_VALUE fits
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(record[i], 10);
+            if (digit < 0 || result < limit / 10) {
+                throw numberFormat(index);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormat(index);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a field as {@link Boolean#parseBoolean} would: true if it is
+     * "true" ignoring case, otherwise false.
+     */
+    public boolean booleanField(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        if (ends[index] - start != 4) {
+            return false;
+        }
+        return (record[start] | 0x20) == 't' && (record[start + 1] | 0x20) == 'r'
+            && (record[start + 2] | 0x20) == 'u' && (record[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * Returns the constant whose name equals a field, as {@link Enum#valueOf}
+     * would.
+     *
+     * @param constants the enum's constants, usually a cached {@code values()} array
+     * @throws IllegalArgumentException if no constant has that name
+     */
+    public <E extends Enum<E>> E enumField(int index, E[] constants) {
+        checkIndex(index);
+        int start = starts[index];
+        int length = ends[index] - start;
+        for (E constant : constants) {
+            String name = constant.name();
+            if (name.length() == length && regionEquals(name, start)) {
+                return constant;
+            }
+        }
+        String type = constants.length > 0 ? constants[0].getDeclaringClass().getName() : "enum";
+        throw new IllegalArgumentException("No enum constant " + type + "." + string(index));
+    }
+
+    /**
+     * Returns true if the field is empty.
+     */
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        return starts[index] == ends[index];
+    }
+
+    private boolean regionEquals(String name, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (record[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private NumberFormatException numberFormat(int index) {
+        return new NumberFormatException("For input string: \"" + string(index) + "\"");
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a record with " + fieldCount + " fields");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * A reusable view of one field position of the current record.
+     */
+    private final class Field implements CharSequence {
+        private final int index;
+
+        Field(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return ends[index] - starts[index];
+        }
+
+        @Override
+        public char charAt(int i) {
+            if (i < 0 || i >= length()) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            return record[starts[index] + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(record, starts[index], length());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV records as defined by RFC 4180, readable by {@link CsvReader}.
+ *
+ * <p>A field is enclosed in double quotes when it contains a comma, quote or
+ * line break, or starts or ends with a space or tab that the reader would
+ * otherwise trim; quotes inside it are doubled. Records end with CRLF.
+ */
+public class CsvWriter implements Closeable, Flushable {
+    private final Writer out;
+    private boolean firstField = true;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a field, quoting it if needed. A null field is written empty.
+     */
+    public CsvWriter field(CharSequence value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.append(value);
+            return this;
+        }
+        out.write('"');
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.append(value, runStart, i + 1);
+                out.write('"');
+                runStart = i + 1;
+            }
+        }
+        out.append(value, runStart, value.length());
+        out.write('"');
+        return this;
+    }
+
+    public CsvWriter field(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public CsvWriter field(boolean value) throws IOException {
+        separate();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a record of fields, then ends it.
+     */
+    public void record(CharSequence... values) throws IOException {
+        for (CharSequence value : values) {
+            field(value);
+        }
+        endRecord();
+    }
+
+    public void endRecord() throws IOException {
+        out.write("\r\n");
+        firstField = true;
+    }
+
+    private void separate() throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        firstField = false;
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        if (isBlank(value.charAt(0)) || isBlank(value.charAt(length - 1))) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,13 @@
+package edu.ccrm.io;
+
+/**
+ * How far a journal write must get before a mutating call returns.
+ */
+public enum DurabilityMode {
+    /** Every record is forced to disk by its own fsync. */
+    PER_OPERATION,
+    /** Records are forced to disk, but concurrent writers share one fsync. */
+    GROUP_COMMIT,
+    /** Records are handed to the OS page cache without an fsync. */
+    OS_BUFFERED
+}
@@ -0,0 +1,360 @@
+package edu.ccrm.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal backed by a single append-only file.
+ *
+ * <p>The file starts with {@code [int magic][long baseSequence]}, where the base
+ * sequence is the last record folded into a snapshot by {@link #checkpoint}.
+ * Each record is then framed as {@code [int bodyLength][long sequence][int crc][body]}
+ * where the body holds the record type and its string fields. Appends only
+ * copy the encoded record into an in-memory buffer; {@link #awaitDurable}
+ * writes the buffer to the {@link FileChannel}. In {@link DurabilityMode#GROUP_COMMIT}
+ * mode the first waiter writes and forces everything appended so far, and
+ * waiters whose records were covered by that force return without touching
+ * the disk.
+ *
+ * <p>A failed write or force stops the journal. Part of the failed write
+ * may have reached the file, so the records are neither retried nor
+ * reported durable: every later append, and every wait for a record not
+ * already durable, throws.
+ */
+public class FileJournal implements Journal {
+    private static final int MAGIC = 0x4343524A; // "CCRJ"
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DurabilityMode mode;
+
+    private final Object appendLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long lastSequence;
+
+    private final Object flushLock = new Object();
+    private volatile long durableSequence;
+    private volatile boolean replaying;
+    /** The first write or force failure; set once, then the journal accepts nothing. */
+    private volatile IOException failure;
+
+    private FileJournal(Path file, FileChannel channel, DurabilityMode mode, long lastSequence) {
+        this.file = file;
+        this.channel = channel;
+        this.mode = mode;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+    }
+
+    /**
+     * Opens a journal for appending, creating the file if needed. A torn
+     * record at the end of an existing file, left by a crash mid-write, is
+     * truncated away and numbering continues after the last intact record.
+     */
+    public static FileJournal open(Path file, DurabilityMode mode) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        long[] last = {exists ? readBaseSequence(file) : 0};
+        long validBytes = exists ? read(file, 0, record -> last[0] = record.sequence()) : 0;
+
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (exists) {
+            channel.truncate(validBytes);
+            channel.position(validBytes);
+        } else {
+            writeFileHeader(channel, 0);
+        }
+        return new FileJournal(file, channel, mode, last[0]);
+    }
+
+    @Override
+    public long append(JournalRecord.Type type, String... fields) {
+        if (replaying) {
+            return 0;
+        }
+        checkNotFailed();
+        byte[] body = encode(type, fields);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        synchronized (appendLock) {
+            long sequence = ++lastSequence;
+            if (pending.remaining() < HEADER_BYTES + body.length) {
+                pending = grow(pending, HEADER_BYTES + body.length);
+            }
+            pending.putInt(body.length)
+                .putLong(sequence)
+                .putInt((int) crc.getValue())
+                .put(body);
+            return sequence;
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        if (sequence <= 0) {
+            return;
+        }
+        if (mode != DurabilityMode.PER_OPERATION && durableSequence >= sequence) {
+            return;
+        }
+        synchronized (flushLock) {
+            // A concurrent flush may have covered this record while we waited
+            if (mode != DurabilityMode.PER_OPERATION && durableSequence >= sequence) {
+                return;
+            }
+            try {
+                flush(mode != DurabilityMode.OS_BUFFERED);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the sequence number of the most recently appended record.
+     */
+    public long lastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Replays every record after the given sequence number through the handler.
+     * Appends made by the handler (for example by services applying the records)
+     * are suppressed, so replay does not write the records back to the journal.
+     *
+     * @return the number of records replayed
+     */
+    public long replay(long afterSequence, Consumer<JournalRecord> handler) throws IOException {
+        awaitDurable(lastSequence());
+        long[] count = {0};
+        replaying = true;
+        try {
+            read(file, afterSequence, record -> {
+                handler.accept(record);
+                count[0]++;
+            });
+        } finally {
+            replaying = false;
+        }
+        return count[0];
+    }
+
+    /**
+     * Discards every record once a snapshot covering them has been written.
+     * The file is cut back to its header, which records the snapshot's
+     * sequence number so numbering continues from it. Nothing is discarded
+     * if records were appended after the given sequence.
+     *
+     * @param sequence the journal sequence number the snapshot reflects
+     * @return true if the journal was truncated
+     */
+    public boolean checkpoint(long sequence) throws IOException {
+        synchronized (flushLock) {
+            flush(true);
+            synchronized (appendLock) {
+                if (lastSequence != sequence) {
+                    return false;
+                }
+                channel.truncate(0);
+                writeFileHeader(channel, sequence);
+                channel.force(true);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            try {
+                flush(mode != DurabilityMode.OS_BUFFERED);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered records to the channel. Caller must hold flushLock.
+     *
+     * @throws IOException if the write or force fails, or an earlier one did
+     */
+    private void flush(boolean force) throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal " + file + " stopped after a failed write", failure);
+        }
+        ByteBuffer toWrite;
+        long upTo;
+        synchronized (appendLock) {
+            toWrite = pending;
+            pending = spare;
+            spare = toWrite;
+            upTo = lastSequence;
+        }
+        toWrite.flip();
+        try {
+            while (toWrite.hasRemaining()) {
+                channel.write(toWrite);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        toWrite.clear();
+        durableSequence = upTo;
+    }
+
+    private void checkNotFailed() {
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Journal " + file + " stopped after a failed write", failed);
+        }
+    }
+
+    /**
+     * Reads intact records from a journal file, stopping at the first torn or
+     * corrupt record.
+     *
+     * @return the byte length of the intact prefix of the file
+     */
+    static long read(Path file, long afterSequence, Consumer<JournalRecord> handler) throws IOException {
+        long validBytes = FILE_HEADER_BYTES;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), INITIAL_BUFFER_BYTES))) {
+            readFileHeader(in, file);
+            byte[] body = new byte[256];
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                long sequence;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    sequence = in.readLong();
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    if (body.length < length) {
+                        body = new byte[length];
+                    }
+                    in.readFully(body, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                validBytes += HEADER_BYTES + length;
+                if (sequence > afterSequence) {
+                    handler.accept(decode(sequence, body, length));
+                }
+            }
+        }
+        return validBytes;
+    }
+
+    private static long readBaseSequence(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return readFileHeader(in, file);
+        }
+    }
+
+    private static long readFileHeader(DataInputStream in, Path file) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a CCRM journal: " + file);
+            }
+            return in.readLong();
+        } catch (EOFException e) {
+            throw new IOException("Truncated journal header: " + file, e);
+        }
+    }
+
+    private static void writeFileHeader(FileChannel channel, long baseSequence) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putLong(baseSequence);
+        header.flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static byte[] encode(JournalRecord.Type type, String... fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeShort(fields.length);
+            for (String field : fields) {
+                if (field == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(utf8.length);
+                    out.write(utf8);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static JournalRecord decode(long sequence, byte[] body, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+        JournalRecord.Type type = JournalRecord.Type.values()[in.readUnsignedByte()];
+        int count = in.readUnsignedShort();
+        List<String> fields = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int fieldLength = in.readInt();
+            if (fieldLength < 0) {
+                fields.add(null);
+            } else {
+                byte[] utf8 = new byte[fieldLength];
+                in.readFully(utf8);
+                fields.add(new String(utf8, StandardCharsets.UTF_8));
+            }
+        }
+        return new JournalRecord(sequence, type, Collections.unmodifiableList(fields));
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + needed);
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    @Override
+    public String toString() {
+        return "FileJournal[" + file + ", " + mode + "]";
+    }
+}
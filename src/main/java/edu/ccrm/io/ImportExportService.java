@@ -6,6 +6,7 @@ import edu.ccrm.domain.Student;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for importing and exporting data.
@@ -16,6 +17,12 @@ public interface ImportExportService {
     List<Course> importCourses(Path file) throws IOException;
     List<Enrollment> importEnrollments(Path file) throws IOException;
 
+    // Streaming import methods: rows are read and handed to the sink one at a
+    // time, so memory use does not depend on the size of the file
+    ImportSummary importStudents(Path file, Consumer<? super Student> sink) throws IOException;
+    ImportSummary importCourses(Path file, Consumer<? super Course> sink) throws IOException;
+    ImportSummary importEnrollments(Path file, Consumer<? super Enrollment> sink) throws IOException;
+
     // Export methods
     void exportStudents(List<Student> students, Path file) throws IOException;
     void exportCourses(List<Course> courses, Path file) throws IOException;
@@ -23,4 +30,16 @@ public interface ImportExportService {
 
     // Export all data
     void exportAllData(Path directory) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Row counts of a streaming import. Rows excludes the header line;
+     * skipped counts rows with too few fields, unknown references or
+     * duplicate keys.
+     */
+    record ImportSummary(long rows, long imported, long skipped) {
+        @Override
+        public String toString() {
+            return imported + " of " + rows + " rows imported, " + skipped + " skipped";
+        }
+    }
+}
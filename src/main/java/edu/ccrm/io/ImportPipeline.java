@@ -0,0 +1,531 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.io.ImportExportService.ImportSummary;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseLoad;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentLoad;
+import edu.ccrm.service.StudentService;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports the students, courses and enrollments CSV files through a staged
+ * pipeline that keeps going past bad rows.
+ *
+ * <p>Each file runs through four stages on their own threads: read splits
+ * the file into records, parse converts fields to numbers and enum
+ * constants, validate checks field counts and references to students and
+ * courses, and apply hands each batch to the services' bulk load methods,
+ * which reject rows that repeat an earlier row of the file or clash with
+ * existing records. Validation does not look up the students or courses being
+ * loaded, so only apply touches those services meanwhile. Stages hand rows
+ * on in batches through bounded queues, so a slow stage holds back the
+ * ones before it instead of letting rows pile up in memory. A row rejected at any stage is
+ * written to the error file with its line number and reason, and the import
+ * continues. Only a file that cannot be read, such as one ending inside a
+ * quoted field, stops the import.
+ *
+ * <p>Students and courses are imported concurrently; enrollments start once
+ * both are done, as they refer to them.
+ */
+public class ImportPipeline {
+    private static final int DEFAULT_QUEUE_BATCHES = 16;
+    private static final int BATCH_ROWS = 256;
+    private static final long PROGRESS_INTERVAL_NANOS = 500_000_000L;
+    /** Marks the end of a stage's output; compared by identity. */
+    private static final List<Row> END = new ArrayList<>(0);
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final int queueBatches;
+
+    public ImportPipeline(StudentService studentService, CourseService courseService,
+                          EnrollmentService enrollmentService) {
+        this(studentService, courseService, enrollmentService, DEFAULT_QUEUE_BATCHES);
+    }
+
+    /**
+     * @param queueBatches the number of batches of rows each queue between stages holds
+     */
+    public ImportPipeline(StudentService studentService, CourseService courseService,
+                          EnrollmentService enrollmentService, int queueBatches) {
+        if (queueBatches <= 0) {
+            throw new IllegalArgumentException("Queue size must be positive");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.queueBatches = queueBatches;
+    }
+
+    /**
+     * Imports the three files, writing rejected rows to the error file,
+     * which is replaced if it exists.
+     *
+     * @param progress notified about twice a second per file, and when each
+     *                 file is done; may be called from two threads at once
+     * @throws IOException if a file cannot be read, or the error file written
+     */
+    public PipelineSummary run(Path students, Path courses, Path enrollments, Path errorFile,
+                               ProgressListener progress) throws IOException {
+        long start = System.nanoTime();
+        try (ErrorSink errors = new ErrorSink(errorFile)) {
+            ExecutorService pool = Executors.newCachedThreadPool();
+            try {
+                Future<ImportSummary> studentRun = pool.submit(
+                    () -> importFile(pool, students, new StudentLoads(), errors, progress));
+                ImportSummary courseSummary = importFile(pool, courses, new CourseLoads(), errors, progress);
+                ImportSummary studentSummary = await(studentRun);
+                ImportSummary enrollmentSummary = importFile(pool, enrollments, new EnrollmentLoads(), errors,
+                    progress);
+                return new PipelineSummary(studentSummary, courseSummary, enrollmentSummary,
+                    errors.count(), (System.nanoTime() - start) / 1_000_000);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private <T> ImportSummary importFile(ExecutorService pool, Path file, RowKind<T> kind, ErrorSink errors,
+                                         ProgressListener progress) throws IOException {
+        Tracker tracker = new Tracker(file, Files.size(file), progress);
+        BlockingQueue<List<Row>> read = new ArrayBlockingQueue<>(queueBatches);
+        BlockingQueue<List<Row>> parsed = new ArrayBlockingQueue<>(queueBatches);
+        BlockingQueue<List<Row>> validated = new ArrayBlockingQueue<>(queueBatches);
+
+        List<Future<?>> stages = List.of(
+            pool.submit(() -> {
+                readStage(file, tracker, read);
+                return null;
+            }),
+            pool.submit(() -> {
+                stage(read, parsed, row -> {
+                    if (row.fields.length < kind.minFields()) {
+                        return "Expected at least " + kind.minFields() + " fields, found " + row.fields.length;
+                    }
+                    row.value = kind.parse(row.fields);
+                    return null;
+                }, errors, tracker);
+                return null;
+            }),
+            pool.submit(() -> {
+                stage(parsed, validated, row -> kind.validate(kind.type().cast(row.value)), errors, tracker);
+                return null;
+            }));
+
+        // Apply on this thread, so rows reach the services in file order
+        try {
+            for (List<Row> batch = validated.take(); batch != END; batch = validated.take()) {
+                List<T> values = new ArrayList<>(batch.size());
+                for (Row row : batch) {
+                    values.add(kind.type().cast(row.value));
+                }
+                BulkLoadResult<?> result = kind.apply(values);
+                tracker.imported.addAndGet(result.getLoaded().size());
+                for (BulkLoadResult.Rejected rejected : result.getRejected()) {
+                    reject(batch.get(rejected.row()), rejected.message(), errors, tracker);
+                }
+                tracker.report(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        }
+        for (Future<?> stage : stages) {
+            await(stage);
+        }
+        tracker.report(true);
+        return tracker.summary();
+    }
+
+    /**
+     * Reads records in batches, skipping the header line, and always ends
+     * the output so later stages finish even if reading fails.
+     */
+    private void readStage(Path file, Tracker tracker, BlockingQueue<List<Row>> out)
+            throws IOException, InterruptedException {
+        try (CsvReader reader = new CsvReader(new InputStreamReader(
+                new CountingInputStream(Files.newInputStream(file), tracker.bytesRead), StandardCharsets.UTF_8))) {
+            reader.next();
+            List<Row> batch = new ArrayList<>(BATCH_ROWS);
+            while (reader.next()) {
+                String[] fields = new String[reader.fieldCount()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = reader.string(i);
+                }
+                batch.add(new Row(reader.lineNumber(), fields));
+                tracker.rows.incrementAndGet();
+                if (batch.size() == BATCH_ROWS) {
+                    out.put(batch);
+                    batch = new ArrayList<>(BATCH_ROWS);
+                }
+            }
+            if (!batch.isEmpty()) {
+                out.put(batch);
+            }
+        } finally {
+            out.put(END);
+        }
+    }
+
+    /**
+     * Passes each batch on with the rows the check rejects removed.
+     */
+    private static void stage(BlockingQueue<List<Row>> in, BlockingQueue<List<Row>> out, RowCheck check,
+                              ErrorSink errors, Tracker tracker) throws IOException, InterruptedException {
+        try {
+            for (List<Row> batch = in.take(); batch != END; batch = in.take()) {
+                List<Row> passed = new ArrayList<>(batch.size());
+                for (Row row : batch) {
+                    String reason;
+                    try {
+                        reason = check.reject(row);
+                    } catch (RuntimeException e) {
+                        reason = e.getMessage() != null ? e.getMessage() : e.toString();
+                    }
+                    if (reason == null) {
+                        passed.add(row);
+                    } else {
+                        reject(row, reason, errors, tracker);
+                    }
+                }
+                if (!passed.isEmpty()) {
+                    out.put(passed);
+                }
+            }
+        } finally {
+            out.put(END);
+        }
+    }
+
+    private static void reject(Row row, String reason, ErrorSink errors, Tracker tracker) throws IOException {
+        errors.write(tracker.fileName, row, reason);
+        tracker.rejected.incrementAndGet();
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Import failed", cause);
+        }
+    }
+
+    // Row kinds
+
+    /**
+     * How the rows of one file are parsed, validated and applied.
+     * Validation keeps no keys: whether a row repeats another depends on
+     * whether that row was loaded, which only the bulk load knows.
+     */
+    private interface RowKind<T> {
+        Class<T> type();
+
+        int minFields();
+
+        /**
+         * @throws IllegalArgumentException if a field cannot be parsed
+         */
+        T parse(String[] fields);
+
+        /**
+         * @return the reason to reject the row, or null to pass it on
+         */
+        String validate(T row);
+
+        /**
+         * Loads a batch of validated rows through the service's bulk load.
+         */
+        BulkLoadResult<?> apply(List<T> rows);
+    }
+
+    private final class StudentLoads implements RowKind<StudentLoad> {
+        @Override
+        public Class<StudentLoad> type() {
+            return StudentLoad.class;
+        }
+
+        @Override
+        public int minFields() {
+            return 4;
+        }
+
+        @Override
+        public StudentLoad parse(String[] fields) {
+            return new StudentLoad(fields[0], fields[1], fields[2], Boolean.parseBoolean(fields[3]));
+        }
+
+        @Override
+        public String validate(StudentLoad row) {
+            if (row.regNo().isEmpty()) {
+                return "Missing registration number";
+            }
+            return null;
+        }
+
+        @Override
+        public BulkLoadResult<?> apply(List<StudentLoad> rows) {
+            return studentService.loadStudents(rows);
+        }
+    }
+
+    private final class CourseLoads implements RowKind<CourseLoad> {
+        @Override
+        public Class<CourseLoad> type() {
+            return CourseLoad.class;
+        }
+
+        @Override
+        public int minFields() {
+            return 6;
+        }
+
+        @Override
+        public CourseLoad parse(String[] fields) {
+            return new CourseLoad(fields[0], fields[1], Integer.parseInt(fields[2]),
+                Course.canonicalInstructor(fields[3]), Semester.valueOf(fields[4]),
+                Course.canonicalDepartment(fields[5]), fields.length >= 7 ? Integer.parseInt(fields[6]) : 0);
+        }
+
+        @Override
+        public String validate(CourseLoad row) {
+            if (row.code().isEmpty()) {
+                return "Missing course code";
+            }
+            return null;
+        }
+
+        @Override
+        public BulkLoadResult<?> apply(List<CourseLoad> rows) {
+            return courseService.loadCourses(rows);
+        }
+    }
+
+    private final class EnrollmentLoads implements RowKind<EnrollmentLoad> {
+        @Override
+        public Class<EnrollmentLoad> type() {
+            return EnrollmentLoad.class;
+        }
+
+        @Override
+        public int minFields() {
+            return 4;
+        }
+
+        @Override
+        public EnrollmentLoad parse(String[] fields) {
+            return new EnrollmentLoad(fields[0], fields[1],
+                fields[2].isEmpty() ? null : LocalDateTime.parse(fields[2], CsvImportExportService.DATE_FORMATTER),
+                fields[3].isEmpty() ? null : Grade.valueOf(fields[3]));
+        }
+
+        @Override
+        public String validate(EnrollmentLoad row) {
+            if (studentService.getStudent(row.studentRegNo()).isEmpty()) {
+                return "Unknown student " + row.studentRegNo();
+            }
+            if (courseService.getCourse(row.courseCode()).isEmpty()) {
+                return "Unknown course " + row.courseCode();
+            }
+            return null;
+        }
+
+        @Override
+        public BulkLoadResult<?> apply(List<EnrollmentLoad> rows) {
+            return enrollmentService.loadEnrollments(rows, studentService, courseService);
+        }
+    }
+
+    // Plumbing
+
+    private static final class Row {
+        private final long line;
+        private final String[] fields;
+        private Object value;
+
+        Row(long line, String[] fields) {
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowCheck {
+        /**
+         * @return the reason to reject the row, or null to pass it on
+         */
+        String reject(Row row);
+    }
+
+    /**
+     * Counts and progress of one file's import.
+     */
+    private static final class Tracker {
+        private final String fileName;
+        private final long totalBytes;
+        private final ProgressListener listener;
+        private final long start = System.nanoTime();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private long lastReport = start;
+
+        Tracker(Path file, long totalBytes, ProgressListener listener) {
+            this.fileName = file.getFileName().toString();
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        /**
+         * Called from the apply stage only.
+         */
+        void report(boolean done) {
+            long now = System.nanoTime();
+            if (listener == null || !done && now - lastReport < PROGRESS_INTERVAL_NANOS) {
+                return;
+            }
+            lastReport = now;
+            long elapsed = Math.max(1, now - start);
+            long processed = imported.get() + rejected.get();
+            // The reader runs ahead of apply by the queued rows, so scale
+            // the share of bytes read by the share of read rows processed
+            long rowsRead = rows.get();
+            double fraction = rowsRead == 0 || totalBytes == 0 ? 0
+                : (double) Math.min(bytesRead.get(), totalBytes) / totalBytes * processed / rowsRead;
+            Duration eta = done ? Duration.ZERO
+                : fraction == 0 ? null
+                : Duration.ofNanos((long) (elapsed * (1 - fraction) / fraction));
+            listener.onProgress(new Progress(fileName, processed, imported.get(), rejected.get(),
+                processed * 1e9 / elapsed, eta, done));
+        }
+
+        ImportSummary summary() {
+            return new ImportSummary(rows.get(), imported.get(), rejected.get());
+        }
+    }
+
+    /**
+     * Counts the bytes read from a stream into a shared counter.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count.addAndGet(n);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Writes rejected rows as CSV: file, line, reason, then the row's fields.
+     */
+    private static final class ErrorSink implements AutoCloseable {
+        private final CsvWriter csv;
+        private long count;
+
+        ErrorSink(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            csv = new CsvWriter(Files.newBufferedWriter(file));
+            csv.record("file", "line", "reason", "fields");
+        }
+
+        synchronized void write(String fileName, Row row, String reason) throws IOException {
+            csv.field(fileName).field(row.line).field(reason);
+            for (String field : row.fields) {
+                csv.field(field);
+            }
+            csv.endRecord();
+            count++;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            csv.close();
+        }
+    }
+
+    /**
+     * Callback notified of each file's progress.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Progress of one file. Rows counts rows applied or rejected so far;
+     * the estimate of the time left is based on the share of the file
+     * processed, and is null until the first row is.
+     */
+    public record Progress(String file, long rows, long imported, long rejected, double rowsPerSecond,
+                           Duration eta, boolean done) {
+        @Override
+        public String toString() {
+            String remaining = done ? "done" : eta == null ? "ETA unknown"
+                : String.format("ETA %d:%02d", eta.toMinutes(), eta.toSecondsPart());
+            return String.format("%s: %d rows (%d imported, %d rejected), %.0f rows/s, %s",
+                file, rows, imported, rejected, rowsPerSecond, remaining);
+        }
+    }
+
+    /**
+     * Outcome of a pipeline run. Rejected counts the rows written to the
+     * error file across all three files.
+     */
+    public record PipelineSummary(ImportSummary students, ImportSummary courses, ImportSummary enrollments,
+                                  long rejected, long elapsedMillis) {
+    }
+}
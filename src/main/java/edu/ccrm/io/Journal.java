@@ -0,0 +1,42 @@
+package edu.ccrm.io;
+
+import java.io.Closeable;
+
+/**
+ * Append-only log of service mutations.
+ * Callers append a record while holding whatever lock orders the mutation,
+ * then wait for durability after releasing it, so concurrent writers can
+ * share a single flush.
+ */
+public interface Journal extends Closeable {
+    /**
+     * A journal that records nothing.
+     */
+    Journal NONE = new Journal() {
+        @Override
+        public long append(JournalRecord.Type type, String... fields) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Buffers a record for writing.
+     *
+     * @return the sequence number assigned to the record
+     */
+    long append(JournalRecord.Type type, String... fields);
+
+    /**
+     * Blocks until the record with the given sequence number, and every record
+     * before it, satisfies the journal's durability mode.
+     */
+    void awaitDurable(long sequence);
+}
@@ -0,0 +1,36 @@
+package edu.ccrm.io;
+
+import java.util.List;
+
+/**
+ * A single mutation read back from the journal.
+ */
+public record JournalRecord(long sequence, Type type, List<String> fields) {
+    /**
+     * Kinds of mutation recorded in the journal. Field layouts are noted per type.
+     */
+    public enum Type {
+        /** regNo, fullName, email, id */
+        CREATE_STUDENT,
+        /** regNo, fullName, email, active */
+        UPDATE_STUDENT,
+        /** regNo */
+        DEACTIVATE_STUDENT,
+        /** code, title, credits, instructor, semester, department, capacity */
+        CREATE_COURSE,
+        /** code, title, credits, instructor, semester, department, capacity */
+        UPDATE_COURSE,
+        /** code */
+        DEACTIVATE_COURSE,
+        /** regNo, courseCode, enrollmentDate */
+        ENROLL,
+        /** regNo, courseCode */
+        UNENROLL,
+        /** regNo, courseCode, grade */
+        RECORD_GRADE
+    }
+
+    public String field(int index) {
+        return fields.get(index);
+    }
+}
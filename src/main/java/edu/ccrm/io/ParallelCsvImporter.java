@@ -0,0 +1,394 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.io.ImportExportService.ImportSummary;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseLoad;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentLoad;
+import edu.ccrm.service.StudentService;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Imports the CSV files written by {@link CsvImportExportService}, parsing
+ * each file on several threads.
+ *
+ * <p>The file is memory-mapped and cut into chunks that end on record
+ * boundaries. A first parallel pass runs each fixed-size slice of the file
+ * through {@link CsvReader}'s field states, from each state the slice could
+ * start in: at a field start, inside an unquoted field, inside a quoted
+ * one, or just after a quote inside one. As in the reader, a quote only
+ * opens a quoted field at the start of a field, so stray quotes elsewhere
+ * are plain text. For each starting state the pass finds the first line
+ * feed that ends a record and the state at the slice end; chaining the end
+ * states from the start of the file then picks each slice's boundary, so
+ * quoted fields with line breaks are never split. Files whose records end
+ * with a bare CR are read as one chunk.
+ *
+ * <p>Chunks are parsed concurrently with {@link CsvReader}, with at most a
+ * fixed window of parsed chunks held at a time, and their rows are applied
+ * to the services' bulk load methods on the calling thread, a chunk at a
+ * time in file order. The result is the same as a sequential import: as
+ * there, rows the services refuse, such as duplicates or enrollments naming
+ * an unknown student or course, are counted as skipped.
+ */
+public class ParallelCsvImporter {
+    private static final int DEFAULT_CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final Semester[] SEMESTERS = Semester.values();
+    private static final Grade[] GRADES = Grade.values();
+
+    // CsvReader's states between characters
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int STATES = 4;
+
+    // Byte classes that change the state
+    private static final int OTHER = 0;
+    private static final int QUOTE = 1;
+    private static final int COMMA = 2;
+    private static final int LINE_FEED = 3;
+    private static final int CARRIAGE_RETURN = 4;
+    private static final int BLANK = 5;
+    private static final int CLASSES = 6;
+
+    private static final byte[] BYTE_CLASSES = new byte[256];
+    /** The next state, indexed by state * CLASSES + byte class. */
+    private static final byte[] TRANSITIONS = new byte[STATES * CLASSES];
+
+    // A slice is scanned from all four start states at once, as one byte
+    // holding the current state of each start state in two bits
+    private static final int START_STATES = FIELD_START | UNQUOTED << 2 | QUOTED << 4 | QUOTE_IN_QUOTED << 6;
+    /** The next packed states, indexed by packed states * CLASSES + byte class. */
+    private static final byte[] STATE_TRANSITIONS = new byte[256 * CLASSES];
+    /** For packed states, a bit per start state whose line feed would end a record. */
+    private static final byte[] RECORD_ENDS = new byte[256];
+
+    static {
+        BYTE_CLASSES['"'] = QUOTE;
+        BYTE_CLASSES[','] = COMMA;
+        BYTE_CLASSES['\n'] = LINE_FEED;
+        BYTE_CLASSES['\r'] = CARRIAGE_RETURN;
+        BYTE_CLASSES[' '] = BLANK;
+        BYTE_CLASSES['\t'] = BLANK;
+        for (int c = 0; c < CLASSES; c++) {
+            boolean delimiter = c == COMMA || c == LINE_FEED || c == CARRIAGE_RETURN;
+            // Leading blanks are skipped, and a quote only opens a field at its start
+            TRANSITIONS[FIELD_START * CLASSES + c] = (byte) (c == QUOTE ? QUOTED
+                : delimiter || c == BLANK ? FIELD_START : UNQUOTED);
+            TRANSITIONS[UNQUOTED * CLASSES + c] = (byte) (delimiter ? FIELD_START : UNQUOTED);
+            TRANSITIONS[QUOTED * CLASSES + c] = (byte) (c == QUOTE ? QUOTE_IN_QUOTED : QUOTED);
+            // A doubled quote is a literal one; anything else closes the field,
+            // and text after the closing quote is kept as unquoted text
+            TRANSITIONS[QUOTE_IN_QUOTED * CLASSES + c] = (byte) (c == QUOTE ? QUOTED
+                : delimiter ? FIELD_START : UNQUOTED);
+        }
+        for (int packed = 0; packed < 256; packed++) {
+            for (int s = 0; s < STATES; s++) {
+                int state = packed >> 2 * s & 3;
+                if (state != QUOTED) {
+                    RECORD_ENDS[packed] |= (byte) (1 << s);
+                }
+                for (int c = 0; c < CLASSES; c++) {
+                    STATE_TRANSITIONS[packed * CLASSES + c] |= (byte) (TRANSITIONS[state * CLASSES + c] << 2 * s);
+                }
+            }
+        }
+    }
+
+    private final StudentService studentService;
+    private final CourseService courseService;
+    private final EnrollmentService enrollmentService;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    public ParallelCsvImporter(StudentService studentService, CourseService courseService,
+                               EnrollmentService enrollmentService) {
+        this(studentService, courseService, enrollmentService, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of chunks parsed concurrently
+     */
+    public ParallelCsvImporter(StudentService studentService, CourseService courseService,
+                               EnrollmentService enrollmentService, int parallelism) {
+        this(studentService, courseService, enrollmentService, parallelism, DEFAULT_CHUNK_BYTES);
+    }
+
+    ParallelCsvImporter(StudentService studentService, CourseService courseService,
+                        EnrollmentService enrollmentService, int parallelism, int chunkBytes) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+        this.parallelism = parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Imports students, then courses, then enrollments, so that every
+     * enrollment can find its student and course.
+     *
+     * @return the summaries of the three files, in that order
+     */
+    public List<ImportSummary> importAll(Path students, Path courses, Path enrollments) throws IOException {
+        return List.of(importStudents(students), importCourses(courses), importEnrollments(enrollments));
+    }
+
+    public ImportSummary importStudents(Path file) throws IOException {
+        return importFile(file, row -> row.fieldCount() < 4 ? null
+            : new StudentLoad(row.string(0), row.string(1), row.string(2), row.booleanField(3)),
+            studentService::loadStudents);
+    }
+
+    public ImportSummary importCourses(Path file) throws IOException {
+        return importFile(file, row -> row.fieldCount() < 6 ? null
+            : new CourseLoad(row.string(0), row.string(1), row.intField(2),
+                Course.canonicalInstructor(row.string(3)), row.enumField(4, SEMESTERS),
+                Course.canonicalDepartment(row.string(5)), row.fieldCount() >= 7 ? row.intField(6) : 0),
+            courseService::loadCourses);
+    }
+
+    /**
+     * Loads enrollments with their grades through
+     * {@link EnrollmentService#loadEnrollments}, which does not apply the
+     * credit limit or capacity rules.
+     */
+    public ImportSummary importEnrollments(Path file) throws IOException {
+        return importFile(file, row -> row.fieldCount() < 4 ? null
+            : new EnrollmentLoad(row.string(0), row.string(1),
+                row.isEmpty(2) ? null : LocalDateTime.parse(row.field(2), CsvImportExportService.DATE_FORMATTER),
+                row.isEmpty(3) ? null : row.enumField(3, GRADES)),
+            rows -> enrollmentService.loadEnrollments(rows, studentService, courseService));
+    }
+
+    private <R> ImportSummary importFile(Path file, RowParser<R> parser, RowApplier<R> applier) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ExecutorService pool = new ForkJoinPool(parallelism);
+            try {
+                long[] boundaries = chunkBoundaries(channel, pool);
+                int window = parallelism * 2;
+                Deque<Future<ParsedChunk<R>>> inFlight = new ArrayDeque<>();
+                int next = 0;
+                long rows = 0;
+                long imported = 0;
+                while (next < boundaries.length - 1 || !inFlight.isEmpty()) {
+                    while (next < boundaries.length - 1 && inFlight.size() < window) {
+                        long start = boundaries[next];
+                        long end = boundaries[next + 1];
+                        boolean header = next == 0;
+                        inFlight.add(pool.submit(() -> parse(channel, start, end, header, parser)));
+                        next++;
+                    }
+                    ParsedChunk<R> chunk = await(inFlight.removeFirst());
+                    rows += chunk.rows();
+                    imported += applier.apply(chunk.parsed()).getLoaded().size();
+                }
+                return new ImportSummary(rows, imported, rows - imported);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Returns the start of every chunk followed by the file size. Each
+     * chunk but the first starts just after a line feed that ends a record.
+     */
+    private long[] chunkBoundaries(FileChannel channel, ExecutorService pool) throws IOException {
+        long size = channel.size();
+        int slices = (int) Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+        List<Future<SliceScan>> scans = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            long start = (long) i * chunkBytes;
+            long end = Math.min(size, start + chunkBytes);
+            scans.add(pool.submit(() -> scan(channel, start, end)));
+        }
+
+        long[] boundaries = new long[slices + 1];
+        int count = 1;
+        int state = FIELD_START;
+        for (int i = 0; i < slices; i++) {
+            SliceScan scan = await(scans.get(i));
+            long lineFeed = scan.firstRecordEnd()[state];
+            if (i > 0 && lineFeed >= 0) {
+                long boundary = (long) i * chunkBytes + lineFeed + 1;
+                if (boundary < size) {
+                    boundaries[count++] = boundary;
+                }
+            }
+            state = scan.endState()[state];
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Runs a slice from every starting state at once, finding for each the
+     * first line feed that ends a record, relative to the slice start, and
+     * the state after the last byte. None of the bytes that change the state
+     * occurs inside a multi-byte UTF-8 sequence.
+     */
+    private static SliceScan scan(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        long[] firstRecordEnd = {-1, -1, -1, -1};
+        int unended = (1 << STATES) - 1;
+        int states = START_STATES;
+        for (int i = 0, limit = bytes.limit(); i < limit; i++) {
+            int byteClass = BYTE_CLASSES[bytes.get(i) & 0xff];
+            if (byteClass == LINE_FEED && (RECORD_ENDS[states] & unended) != 0) {
+                int ended = RECORD_ENDS[states] & unended;
+                for (int s = 0; s < STATES; s++) {
+                    if ((ended & 1 << s) != 0) {
+                        firstRecordEnd[s] = i;
+                    }
+                }
+                unended &= ~ended;
+            }
+            states = STATE_TRANSITIONS[states * CLASSES + byteClass] & 0xff;
+        }
+        int[] endState = new int[STATES];
+        for (int s = 0; s < STATES; s++) {
+            endState[s] = states >> 2 * s & 3;
+        }
+        return new SliceScan(endState, firstRecordEnd);
+    }
+
+    private static <R> ParsedChunk<R> parse(FileChannel channel, long start, long end, boolean header,
+                                            RowParser<R> parser) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Record at byte " + start + " is too long to map");
+        }
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CsvReader reader = new CsvReader(new DecodingReader(bytes));
+        if (header) {
+            reader.next();
+        }
+        List<R> parsed = new ArrayList<>();
+        long rows = 0;
+        while (reader.next()) {
+            rows++;
+            R row = parser.parse(reader);
+            if (row != null) {
+                parsed.add(row);
+            }
+        }
+        return new ParsedChunk<>(rows, parsed);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Import failed", cause);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser<R> {
+        /**
+         * @return the parsed row, or null to skip it
+         */
+        R parse(CsvReader row);
+    }
+
+    @FunctionalInterface
+    private interface RowApplier<R> {
+        /**
+         * Loads a chunk's rows through a service's bulk load.
+         */
+        BulkLoadResult<?> apply(List<R> rows);
+    }
+
+    /**
+     * A slice's scan, indexed by the state the slice starts in.
+     */
+    private record SliceScan(int[] endState, long[] firstRecordEnd) {
+    }
+
+    private record ParsedChunk<R>(long rows, List<R> parsed) {
+    }
+
+    /**
+     * Decodes UTF-8 from a byte buffer, reporting malformed input as
+     * {@link java.nio.file.Files#newBufferedReader} does. Bytes are copied to
+     * a heap buffer first, as the decoder is much faster on arrays than on
+     * mapped memory.
+     */
+    private static final class DecodingReader extends Reader {
+        private static final int STAGING_BYTES = 64 * 1024;
+
+        private final ByteBuffer bytes;
+        private final ByteBuffer staging = ByteBuffer.allocate(STAGING_BYTES).flip();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        private boolean flushed;
+
+        DecodingReader(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (flushed) {
+                return -1;
+            }
+            if (staging.remaining() < STAGING_BYTES / 2 && bytes.hasRemaining()) {
+                staging.compact();
+                int count = Math.min(staging.remaining(), bytes.remaining());
+                bytes.get(staging.array(), staging.position(), count);
+                staging.position(staging.position() + count).flip();
+            }
+            CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+            boolean endOfInput = !bytes.hasRemaining();
+            CoderResult result = decoder.decode(staging, out, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput && result.isUnderflow()) {
+                result = decoder.flush(out);
+                flushed = result.isUnderflow();
+            }
+            int read = out.position() - offset;
+            return read > 0 || !flushed ? read : -1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
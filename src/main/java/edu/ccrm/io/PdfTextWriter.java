@@ -0,0 +1,404 @@
+package edu.ccrm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes plain text as a PDF document, streaming it to an OutputStream.
+ *
+ * <p>Text is appended like to any {@link Appendable}; each {@code '\n'} ends a
+ * line. Lines are set in 10 pt Helvetica on US Letter pages, with the first
+ * line of the document in Helvetica-Bold as its heading. Lines wider than the
+ * text area are wrapped at the last space that fits, measured with the
+ * standard Helvetica glyph widths. Only the current line and page are held
+ * in memory: each page is written as a content stream and page object as
+ * soon as it is full, and the page tree, cross-reference table and trailer
+ * follow on {@link #finish}.
+ *
+ * <p>Text is encoded in WinAnsiEncoding, which covers Latin-1 and common
+ * punctuation; other characters are written as '?'.
+ */
+public class PdfTextWriter implements Appendable {
+    private static final int PAGE_WIDTH = 612;
+    private static final int PAGE_HEIGHT = 792;
+    private static final int MARGIN = 72;
+    private static final int FONT_SIZE = 10;
+    private static final int LEADING = 14;
+    private static final int LINES_PER_PAGE = (PAGE_HEIGHT - 2 * MARGIN) / LEADING + 1;
+    /** Width of the text area in thousandths of the font size, the unit of glyph widths. */
+    private static final int MAX_LINE_WIDTH = (PAGE_WIDTH - 2 * MARGIN) * 1000 / FONT_SIZE;
+    private static final int DEFAULT_GLYPH_WIDTH = 556;
+    private static final int BUFFER_BYTES = 4096;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int REGULAR_FONT = 3;
+    private static final int BOLD_FONT = 4;
+    private static final int INFO = 5;
+    private static final int FIRST_PAGE_OBJECT = 6;
+
+    /** Helvetica advance widths for the printable ASCII characters, from the standard font metrics. */
+    private static final short[] HELVETICA_WIDTHS = {
+        278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+        556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+        1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+        667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+        333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+        556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+    private long flushedBytes;
+
+    private long[] offsets = new long[16];
+    private int objectCount;
+
+    private final StringBuilder line = new StringBuilder(128);
+    private byte[] page = new byte[4096];
+    private int pageLength;
+    private int pageLines;
+    private int pageCount;
+    private boolean headingWritten;
+    private boolean finished;
+
+    /**
+     * Starts a document, writing its header and shared objects.
+     *
+     * @param title the document title recorded in its properties, or null
+     */
+    public PdfTextWriter(OutputStream out, String title) throws IOException {
+        this.out = out;
+        objectCount = FIRST_PAGE_OBJECT - 1;
+        writeAscii("%PDF-1.4\n");
+        // A comment with high bytes marks the file as binary to transfer tools
+        writeAscii("%\u00e2\u00e3\u00cf\u00d3\n");
+
+        beginObject(CATALOG);
+        writeAscii("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\n");
+        endObject();
+        beginObject(REGULAR_FONT);
+        writeAscii("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\n");
+        endObject();
+        beginObject(BOLD_FONT);
+        writeAscii("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\n");
+        endObject();
+        beginObject(INFO);
+        writeAscii("<< /Producer (CCRM)");
+        if (title != null) {
+            writeAscii(" /Title ");
+            byte[] encoded = new byte[2 + 4 * title.length()];
+            write(encoded, 0, encodeString(encoded, 0, title, 0, title.length()));
+        }
+        writeAscii(" >>\n");
+        endObject();
+    }
+
+    @Override
+    public PdfTextWriter append(CharSequence csq) throws IOException {
+        CharSequence text = csq != null ? csq : "null";
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public PdfTextWriter append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence text = csq != null ? csq : "null";
+        checkNotFinished();
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                line.append(text, runStart, i);
+                if (c == '\n') {
+                    endLine();
+                }
+                runStart = i + 1;
+            }
+        }
+        line.append(text, runStart, end);
+        return this;
+    }
+
+    @Override
+    public PdfTextWriter append(char c) throws IOException {
+        checkNotFinished();
+        if (c == '\n') {
+            endLine();
+        } else if (c != '\r') {
+            line.append(c);
+        }
+        return this;
+    }
+
+    private void checkNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("Document already finished");
+        }
+    }
+
+    /**
+     * Ends the last line and page and writes the page tree, cross-reference
+     * table and trailer. The stream is flushed and left open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (line.length() > 0) {
+            endLine();
+        }
+        if (pageLines > 0 || pageCount == 0) {
+            endPage();
+        }
+        finished = true;
+
+        beginObject(PAGES);
+        writeAscii("<< /Type /Pages /Count ");
+        writeNumber(pageCount);
+        writeAscii(" /Kids [");
+        for (int i = 0; i < pageCount; i++) {
+            writeAscii(i == 0 ? "" : " ");
+            writeNumber(FIRST_PAGE_OBJECT + 2 * i + 1);
+            writeAscii(" 0 R");
+        }
+        writeAscii("] >>\n");
+        endObject();
+
+        long xref = offset();
+        writeAscii("xref\n0 ");
+        writeNumber(objectCount + 1);
+        writeAscii("\n0000000000 65535 f \n");
+        byte[] entry = "0000000000 00000 n \n".getBytes(StandardCharsets.US_ASCII);
+        for (int object = 1; object <= objectCount; object++) {
+            long value = offsets[object];
+            for (int i = 9; i >= 0; i--) {
+                entry[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            write(entry, 0, entry.length);
+        }
+        writeAscii("trailer\n<< /Size ");
+        writeNumber(objectCount + 1);
+        writeAscii(" /Root " + CATALOG + " 0 R /Info " + INFO + " 0 R >>\nstartxref\n");
+        writeNumber(xref);
+        writeAscii("\n%%EOF\n");
+        flushBuffer();
+        out.flush();
+    }
+
+    private void endLine() throws IOException {
+        boolean bold = !headingWritten;
+        headingWritten = true;
+        int start = 0;
+        int length = line.length();
+        do {
+            int end = wrap(start, length);
+            addLine(start, end, bold);
+            start = end;
+            while (start < length && line.charAt(start) == ' ') {
+                start++;
+            }
+        } while (start < length);
+        line.setLength(0);
+    }
+
+    /**
+     * Returns the end of the longest run of the line from start that fits
+     * the text area, breaking after a space where possible.
+     */
+    private int wrap(int start, int length) {
+        int width = 0;
+        int lastSpace = -1;
+        for (int i = start; i < length; i++) {
+            char c = line.charAt(i);
+            width += c >= 0x20 && c < 0x7F ? HELVETICA_WIDTHS[c - 0x20] : DEFAULT_GLYPH_WIDTH;
+            if (width > MAX_LINE_WIDTH) {
+                return lastSpace > start ? lastSpace : Math.max(i, start + 1);
+            }
+            if (c == ' ') {
+                lastSpace = i;
+            }
+        }
+        return length;
+    }
+
+    private void addLine(int start, int end, boolean bold) throws IOException {
+        if (pageLines == LINES_PER_PAGE) {
+            endPage();
+        }
+        if (pageLines == 0) {
+            putPageAscii("BT\n/F1 " + FONT_SIZE + " Tf\n" + LEADING + " TL\n"
+                + MARGIN + " " + (PAGE_HEIGHT - MARGIN) + " Td\n");
+        }
+        if (start < end) {
+            if (bold) {
+                putPageAscii("/F2 " + FONT_SIZE + " Tf\n");
+            }
+            ensurePageCapacity(2 + 4 * (end - start) + 4);
+            pageLength = encodeString(page, pageLength, line, start, end);
+            putPageAscii(" Tj\n");
+            if (bold) {
+                putPageAscii("/F1 " + FONT_SIZE + " Tf\n");
+            }
+        }
+        putPageAscii("T*\n");
+        pageLines++;
+    }
+
+    /**
+     * Writes the current page's content stream and page object.
+     */
+    private void endPage() throws IOException {
+        if (pageLines > 0) {
+            putPageAscii("ET\n");
+        }
+        int contents = nextObject();
+        int pageObject = nextObject();
+
+        beginObject(contents);
+        writeAscii("<< /Length ");
+        writeNumber(pageLength);
+        writeAscii(" >>\nstream\n");
+        write(page, 0, pageLength);
+        writeAscii("\nendstream\n");
+        endObject();
+
+        beginObject(pageObject);
+        writeAscii("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+            + "] /Resources << /Font << /F1 " + REGULAR_FONT + " 0 R /F2 " + BOLD_FONT + " 0 R >> >> /Contents ");
+        writeNumber(contents);
+        writeAscii(" 0 R >>\n");
+        endObject();
+
+        pageCount++;
+        pageLength = 0;
+        pageLines = 0;
+    }
+
+    private int nextObject() {
+        return ++objectCount;
+    }
+
+    private void beginObject(int object) throws IOException {
+        if (object >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, object + 1));
+        }
+        offsets[object] = offset();
+        writeNumber(object);
+        writeAscii(" 0 obj\n");
+    }
+
+    private void endObject() throws IOException {
+        writeAscii("endobj\n");
+    }
+
+    private long offset() {
+        return flushedBytes + position;
+    }
+
+    // Page content
+
+    private void putPageAscii(String text) {
+        ensurePageCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            page[pageLength++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void ensurePageCapacity(int extra) {
+        if (pageLength + extra > page.length) {
+            page = Arrays.copyOf(page, Math.max(page.length * 2, pageLength + extra));
+        }
+    }
+
+    /**
+     * Writes text as a PDF literal string in WinAnsiEncoding, escaping
+     * delimiters and writing non-ASCII bytes as octal escapes.
+     *
+     * @return the offset after the string
+     */
+    private static int encodeString(byte[] target, int offset, CharSequence text, int start, int end) {
+        target[offset++] = '(';
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i++;
+            }
+            int b = winAnsi(c);
+            if (b == '(' || b == ')' || b == '\\') {
+                target[offset++] = '\\';
+                target[offset++] = (byte) b;
+            } else if (b >= 0x20 && b < 0x7F) {
+                target[offset++] = (byte) b;
+            } else {
+                target[offset++] = '\\';
+                target[offset++] = (byte) ('0' + (b >> 6 & 7));
+                target[offset++] = (byte) ('0' + (b >> 3 & 7));
+                target[offset++] = (byte) ('0' + (b & 7));
+            }
+        }
+        target[offset++] = ')';
+        return offset;
+    }
+
+    /**
+     * Returns the WinAnsiEncoding byte of a character, or '?' if it has none.
+     */
+    private static int winAnsi(char c) {
+        if (c >= 0x20 && c < 0x7F || c >= 0xA0 && c <= 0xFF) {
+            return c;
+        }
+        switch (c) {
+            case '\u20ac': return 0x80;
+            case '\u2018': return 0x91;
+            case '\u2019': return 0x92;
+            case '\u201c': return 0x93;
+            case '\u201d': return 0x94;
+            case '\u2022': return 0x95;
+            case '\u2013': return 0x96;
+            case '\u2014': return 0x97;
+            case '\t': return ' ';
+            default: return '?';
+        }
+    }
+
+    // Output
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeNumber(long value) throws IOException {
+        writeAscii(Long.toString(value));
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length >= buffer.length) {
+            flushBuffer();
+            out.write(bytes, offset, length);
+            flushedBytes += length;
+            return;
+        }
+        if (position + length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            flushedBytes += position;
+            position = 0;
+        }
+    }
+}
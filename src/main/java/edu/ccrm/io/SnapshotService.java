@@ -0,0 +1,303 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.*;
+import edu.ccrm.service.RestorableEnrollmentService;
+import edu.ccrm.service.impl.DefaultCourseService;
+import edu.ccrm.service.impl.DefaultStudentService;
+import edu.ccrm.util.IdGenerator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for saving the full in-memory state to a compact binary snapshot
+ * and restoring it at startup.
+ *
+ * <p>A snapshot records the journal sequence number it covers. Restoring
+ * loads the snapshot straight into the service stores, skipping the
+ * validating create paths, and then replays only the journal records
+ * written after it. Snapshots should be taken while no mutations are in
+ * flight, e.g. at shutdown.
+ *
+ * <p>Layout (version 2): header {@code [int magic][int version][long journalSequence]},
+ * then courses and students each as {@code [int count][records...]}, then
+ * enrollments as {@code [byte 1][record]...[byte 0]}. Enrollments refer to
+ * students and courses by their position in the snapshot, so each row costs
+ * a few fixed-width fields instead of two strings. Version 1 snapshots,
+ * which stored student IDs as strings, are still read; students whose ID is
+ * not in the current numeric form are given a new one.
+ */
+public class SnapshotService {
+    private static final int MAGIC = 0x4343524D; // "CCRM"
+    private static final int VERSION = 2;
+    private static final int VERSION_STRING_IDS = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final DefaultStudentService studentService;
+    private final DefaultCourseService courseService;
+    private final RestorableEnrollmentService enrollmentService;
+
+    /**
+     * Counts reported after a restore.
+     */
+    public record RestoreSummary(int students, int courses, long enrollments, long replayedRecords) {
+    }
+
+    public SnapshotService(DefaultStudentService studentService,
+                           DefaultCourseService courseService,
+                           RestorableEnrollmentService enrollmentService) {
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.enrollmentService = enrollmentService;
+    }
+
+    /**
+     * Writes a snapshot of all students, courses and enrollments. The file is
+     * written next to the target and moved into place, so a crash never
+     * leaves a partial snapshot behind.
+     *
+     * @param journalSequence the last journal sequence number reflected in the current state
+     */
+    public void writeSnapshot(Path file, long journalSequence) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSequence);
+
+            List<Course> courses = courseService.getAllCourses();
+            Map<String, Integer> courseIndex = new HashMap<>(courses.size() * 2);
+            out.writeInt(courses.size());
+            for (Course course : courses) {
+                courseIndex.put(course.getCode(), courseIndex.size());
+                writeString(out, course.getCode());
+                writeString(out, course.getTitle());
+                out.writeInt(course.getCredits());
+                writeString(out, course.getInstructor());
+                out.writeByte(course.getSemester().ordinal());
+                writeString(out, course.getDepartment());
+                out.writeInt(course.getCapacity());
+            }
+
+            List<Student> students = studentService.getAllStudents();
+            Map<String, Integer> studentIndex = new HashMap<>(students.size() * 2);
+            out.writeInt(students.size());
+            for (Student student : students) {
+                studentIndex.put(student.getRegNo(), studentIndex.size());
+                out.writeLong(student.getIdValue());
+                writeString(out, student.getRegNo());
+                writeString(out, student.getFullName());
+                writeString(out, student.getEmail());
+                out.writeBoolean(student.isActive());
+                writeDateTime(out, student.getCreatedAt());
+                writeDateTime(out, student.getUpdatedAt());
+            }
+
+            IOException[] failure = new IOException[1];
+            enrollmentService.forEachEnrollment(enrollment -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                Integer studentPos = studentIndex.get(enrollment.getStudent().getRegNo());
+                Integer coursePos = courseIndex.get(enrollment.getCourse().getCode());
+                if (studentPos == null || coursePos == null) {
+                    return; // Orphaned by a deactivated course; not restorable
+                }
+                try {
+                    out.writeByte(1);
+                    out.writeInt(studentPos);
+                    out.writeInt(coursePos);
+                    writeDateTime(out, enrollment.getEnrollmentDate());
+                    out.writeByte(enrollment.getGrade() != null ? enrollment.getGrade().ordinal() : -1);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            out.writeByte(0);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the snapshot (if the file exists) into the services, then replays
+     * the journal records written after it.
+     */
+    public RestoreSummary restore(Path snapshot, FileJournal journal) throws IOException {
+        int studentCount = 0;
+        int courseCount = 0;
+        long enrollmentCount = 0;
+        long journalSequence = 0;
+
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshot), BUFFER_BYTES))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a CCRM snapshot: " + snapshot);
+                }
+                int version = in.readInt();
+                if (version != VERSION && version != VERSION_STRING_IDS) {
+                    throw new IOException("Unsupported snapshot version " + version + " in " + snapshot);
+                }
+                journalSequence = in.readLong();
+
+                Semester[] semesters = Semester.values();
+                Grade[] grades = Grade.values();
+
+                courseCount = in.readInt();
+                Course[] courses = new Course[courseCount];
+                for (int i = 0; i < courseCount; i++) {
+                    courses[i] = new Course.Builder(readString(in))
+                        .title(readString(in))
+                        .credits(in.readInt())
+                        .instructor(readString(in))
+                        .semester(semesters[in.readByte()])
+                        .department(readString(in))
+                        .capacity(in.readInt())
+                        .build();
+                    courseService.restoreCourse(courses[i]);
+                }
+
+                studentCount = in.readInt();
+                Student[] students = new Student[studentCount];
+                for (int i = 0; i < studentCount; i++) {
+                    long id = version == VERSION_STRING_IDS ? parseId(readString(in)) : in.readLong();
+                    String regNo = readString(in);
+                    String fullName = readString(in);
+                    String email = readString(in);
+                    boolean active = in.readBoolean();
+                    students[i] = new Student(id, regNo, fullName, email,
+                        readDateTime(in), readDateTime(in));
+                    students[i].setActive(active);
+                    studentService.restoreStudent(students[i]);
+                }
+
+                while (in.readByte() != 0) {
+                    Student student = students[in.readInt()];
+                    Course course = courses[in.readInt()];
+                    Enrollment enrollment = new Enrollment(student, course, readDateTime(in));
+                    byte grade = in.readByte();
+                    if (grade >= 0) {
+                        enrollment.setGrade(grades[grade]);
+                    }
+                    enrollmentService.restoreEnrollment(enrollment);
+                    enrollmentCount++;
+                }
+            }
+        }
+
+        long replayed = journal.replay(journalSequence, this::apply);
+        return new RestoreSummary(studentCount, courseCount, enrollmentCount, replayed);
+    }
+
+    /**
+     * Applies one journal record. Records are applied idempotently, so a
+     * record already reflected in the snapshot is harmless.
+     */
+    private void apply(JournalRecord record) {
+        switch (record.type()) {
+            case CREATE_STUDENT -> {
+                if (studentService.getStudent(record.field(0)).isEmpty()) {
+                    studentService.restoreStudent(new Student(parseId(record.field(3)), record.field(0),
+                        record.field(1), record.field(2)));
+                }
+            }
+            case UPDATE_STUDENT -> studentService.getStudent(record.field(0)).ifPresent(student -> {
+                student.setFullName(record.field(1));
+                student.setEmail(record.field(2));
+                student.setActive(Boolean.parseBoolean(record.field(3)));
+            });
+            case DEACTIVATE_STUDENT -> studentService.getStudent(record.field(0))
+                .ifPresent(student -> student.setActive(false));
+            case CREATE_COURSE, UPDATE_COURSE -> {
+                Course existing = courseService.getCourse(record.field(0)).orElse(null);
+                if (existing == null) {
+                    courseService.restoreCourse(new Course.Builder(record.field(0))
+                        .title(record.field(1))
+                        .credits(Integer.parseInt(record.field(2)))
+                        .instructor(record.field(3))
+                        .semester(Semester.valueOf(record.field(4)))
+                        .department(record.field(5))
+                        .capacity(Integer.parseInt(record.field(6)))
+                        .build());
+                } else {
+                    existing.setTitle(record.field(1));
+                    existing.setCredits(Integer.parseInt(record.field(2)));
+                    existing.setInstructor(record.field(3));
+                    existing.setSemester(Semester.valueOf(record.field(4)));
+                    existing.setDepartment(record.field(5));
+                    existing.setCapacity(Integer.parseInt(record.field(6)));
+                }
+            }
+            case DEACTIVATE_COURSE -> courseService.deactivateCourse(record.field(0));
+            case ENROLL -> studentService.getStudent(record.field(0)).ifPresent(student ->
+                courseService.getCourse(record.field(1)).ifPresent(course ->
+                    enrollmentService.restoreEnrollment(
+                        new Enrollment(student, course, LocalDateTime.parse(record.field(2))))));
+            case UNENROLL -> studentService.getStudent(record.field(0)).ifPresent(student ->
+                courseService.getCourse(record.field(1)).ifPresent(course ->
+                    enrollmentService.unenrollStudent(student, course)));
+            case RECORD_GRADE -> studentService.getStudent(record.field(0)).ifPresent(student ->
+                courseService.getCourse(record.field(1)).ifPresent(course ->
+                    enrollmentService.recordGrade(student, course, Grade.valueOf(record.field(2)))));
+        }
+    }
+
+    /**
+     * Parses a persisted student ID, assigning a new one to IDs written
+     * before IDs became numeric.
+     */
+    private long parseId(String id) {
+        try {
+            return IdGenerator.parse(id);
+        } catch (NumberFormatException e) {
+            return studentService.getIdGenerator().nextId();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,231 @@
+package edu.ccrm.io;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.TranscriptService;
+import edu.ccrm.util.SymbolTable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders the transcripts of a whole cohort in parallel, into one text
+ * file per student in a directory or into a single ZIP archive.
+ *
+ * <p>The cohort is consumed as a stream and at most a fixed window of
+ * transcripts is in flight at any time, so memory use does not grow with
+ * the cohort. Directory exports write each file from the rendering thread;
+ * ZIP exports render to memory and append entries from the calling thread
+ * in completion order. A student whose transcript cannot be rendered, or
+ * whose file cannot be written, is reported in the summary and skipped;
+ * an I/O error on the ZIP archive aborts the export.
+ */
+public class TranscriptExportService {
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final TranscriptService transcriptService;
+    private final StudentService studentService;
+    private final EnrollmentService enrollmentService;
+    private final int parallelism;
+
+    public TranscriptExportService(TranscriptService transcriptService, StudentService studentService,
+                                   EnrollmentService enrollmentService) {
+        this(transcriptService, studentService, enrollmentService,
+            Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism the number of transcripts rendered concurrently
+     */
+    public TranscriptExportService(TranscriptService transcriptService, StudentService studentService,
+                                   EnrollmentService enrollmentService, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.transcriptService = transcriptService;
+        this.studentService = studentService;
+        this.enrollmentService = enrollmentService;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns all active students, read lazily from the student service.
+     */
+    public Stream<Student> activeStudents() {
+        return studentService.streamStudents().filter(Student::isActive);
+    }
+
+    /**
+     * Returns every student enrolled in at least one course of a department,
+     * read lazily from the student service. Each student is checked against
+     * their own enrollments, so nothing is held per cohort.
+     */
+    public Stream<Student> departmentStudents(String department) {
+        int departmentCode = Course.departmentCode(department);
+        if (departmentCode == SymbolTable.NONE) {
+            return Stream.empty();
+        }
+        return studentService.streamStudents()
+            .filter(student -> enrollmentService.getEnrollmentsForStudent(student).stream()
+                .anyMatch(enrollment -> enrollment.getCourse().getDepartmentCode() == departmentCode));
+    }
+
+    /**
+     * Writes one {@code <regNo>.txt} file per student into a directory,
+     * creating it if needed.
+     */
+    public ExportSummary exportToDirectory(Stream<Student> cohort, Path directory, ProgressListener progress)
+            throws IOException {
+        Files.createDirectories(directory);
+        return export(cohort, progress, student -> {
+            Path file = directory.resolve(fileName(student));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                transcriptService.writeTranscript(student, out, StandardCharsets.UTF_8);
+            }
+            return null;
+        }, rendered -> {
+        });
+    }
+
+    /**
+     * Writes one {@code <regNo>.txt} entry per student into a ZIP archive,
+     * replacing the file if it exists.
+     */
+    public ExportSummary exportToZip(Stream<Student> cohort, Path zipFile, ProgressListener progress)
+            throws IOException {
+        Path parent = zipFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)))) {
+            return export(cohort, progress, student -> {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+                transcriptService.writeTranscript(student, bytes, StandardCharsets.UTF_8);
+                return bytes.toByteArray();
+            }, rendered -> {
+                zip.putNextEntry(new ZipEntry(rendered.name()));
+                zip.write(rendered.content());
+                zip.closeEntry();
+            });
+        }
+    }
+
+    /**
+     * Runs the render tasks with a bounded window of work in flight. Results
+     * are handed to the sink on the calling thread.
+     */
+    private ExportSummary export(Stream<Student> cohort, ProgressListener progress, Renderer renderer,
+                                 Sink sink) throws IOException {
+        long start = System.nanoTime();
+        int window = parallelism * 4;
+        ExecutorService pool = new ForkJoinPool(parallelism);
+        CompletionService<Rendered> completion = new ExecutorCompletionService<>(pool);
+        Tally tally = new Tally();
+        try {
+            Iterator<Student> students = cohort.iterator();
+            int inFlight = 0;
+            while (students.hasNext()) {
+                if (inFlight == window) {
+                    collect(completion, sink, tally, progress);
+                    inFlight--;
+                }
+                Student student = students.next();
+                completion.submit(() -> render(student, renderer));
+                inFlight++;
+            }
+            for (; inFlight > 0; inFlight--) {
+                collect(completion, sink, tally, progress);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new ExportSummary(tally.written, tally.failed, List.copyOf(tally.failures),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Rendered render(Student student, Renderer renderer) {
+        try {
+            return new Rendered(student.getRegNo(), fileName(student), renderer.render(student), null);
+        } catch (Exception e) {
+            return new Rendered(student.getRegNo(), fileName(student), null, e);
+        }
+    }
+
+    private static void collect(CompletionService<Rendered> completion, Sink sink, Tally tally,
+                                ProgressListener progress) throws IOException {
+        Rendered rendered;
+        try {
+            rendered = completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcript export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Transcript export failed", e.getCause());
+        }
+        if (rendered.error() == null) {
+            sink.accept(rendered);
+            tally.written++;
+        } else {
+            tally.failed++;
+            if (tally.failures.size() < MAX_REPORTED_FAILURES) {
+                tally.failures.add(rendered.regNo() + ": " + rendered.error().getMessage());
+            }
+        }
+        if (progress != null) {
+            progress.onProgress(tally.written, tally.failed);
+        }
+    }
+
+    /**
+     * Returns a file name for a student's transcript, replacing characters
+     * that are not safe in file names.
+     */
+    private static String fileName(Student student) {
+        return student.getRegNo().replaceAll("[^A-Za-z0-9._-]", "_") + ".txt";
+    }
+
+    /**
+     * Callback notified after each transcript is written or fails.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int written, int failed);
+    }
+
+    /**
+     * Outcome of an export. Failures lists up to the first 100 students
+     * whose transcripts could not be rendered.
+     */
+    public record ExportSummary(int written, int failed, List<String> failures, long elapsedMillis) {
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        byte[] render(Student student) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Sink {
+        void accept(Rendered rendered) throws IOException;
+    }
+
+    private record Rendered(String regNo, String name, byte[] content, Exception error) {
+    }
+
+    private static final class Tally {
+        private int written;
+        private int failed;
+        private final List<String> failures = new ArrayList<>();
+    }
+}
@@ -0,0 +1,57 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Enrollment;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk enrollment batch. Rows are identified by their index in
+ * the submitted batch.
+ */
+public class BulkEnrollmentResult {
+    /**
+     * Why a row was rejected.
+     */
+    public enum Reason {
+        INVALID_REQUEST,
+        DUPLICATE_ENROLLMENT,
+        MAX_CREDITS_EXCEEDED,
+        WAITLISTED
+    }
+
+    public record Accepted(int row, Enrollment enrollment) {
+    }
+
+    public record Rejected(int row, EnrollmentRequest request, Reason reason, String message) {
+    }
+
+    private final List<Accepted> accepted = new ArrayList<>();
+    private final List<Rejected> rejected = new ArrayList<>();
+
+    public void accept(int row, Enrollment enrollment) {
+        accepted.add(new Accepted(row, enrollment));
+    }
+
+    public void reject(int row, EnrollmentRequest request, Reason reason, String message) {
+        rejected.add(new Rejected(row, request, reason, message));
+    }
+
+    public List<Accepted> getAccepted() {
+        return Collections.unmodifiableList(accepted);
+    }
+
+    public List<Rejected> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    public boolean hasRejections() {
+        return !rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bulk enrollment: %d accepted, %d rejected",
+            accepted.size(), rejected.size());
+    }
+}
@@ -0,0 +1,59 @@
+package edu.ccrm.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk load batch. Rows are identified by their index in the
+ * submitted batch; loaded items are listed in batch order.
+ */
+public class BulkLoadResult<T> {
+    /**
+     * Why a row was rejected.
+     */
+    public enum Reason {
+        INVALID_ROW,
+        DUPLICATE_IN_BATCH,
+        ALREADY_EXISTS,
+        UNKNOWN_REFERENCE
+    }
+
+    public record Loaded<T>(int row, T item) {
+    }
+
+    public record Rejected(int row, Reason reason, String message) {
+    }
+
+    private final List<Loaded<T>> loaded;
+    private final List<Rejected> rejected = new ArrayList<>();
+
+    public BulkLoadResult(int batchSize) {
+        this.loaded = new ArrayList<>(batchSize);
+    }
+
+    public void load(int row, T item) {
+        loaded.add(new Loaded<>(row, item));
+    }
+
+    public void reject(int row, Reason reason, String message) {
+        rejected.add(new Rejected(row, reason, message));
+    }
+
+    public List<Loaded<T>> getLoaded() {
+        return Collections.unmodifiableList(loaded);
+    }
+
+    public List<Rejected> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    public boolean hasRejections() {
+        return !rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bulk load: %d loaded, %d rejected", loaded.size(), rejected.size());
+    }
+}
@@ -0,0 +1,10 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Semester;
+
+/**
+ * A single row of a bulk course load. A capacity of zero means unlimited.
+ */
+public record CourseLoad(String code, String title, int credits, String instructor,
+                         Semester semester, String department, int capacity) {
+}
@@ -0,0 +1,13 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+
+/**
+ * Callback notified when courses are added to or removed from a {@link CourseService}.
+ * Changes to the properties of a registered course are reported through
+ * {@link edu.ccrm.domain.CourseListener} instead.
+ */
+public interface CourseRegistryListener {
+    void courseAdded(Course course);
+    void courseRemoved(Course course);
+}
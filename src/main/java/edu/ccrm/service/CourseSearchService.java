@@ -0,0 +1,11 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import java.util.List;
+
+/**
+ * Service interface for free-text and prefix search over courses.
+ */
+public interface CourseSearchService {
+    List<Course> search(String query, int limit);
+}
@@ -4,6 +4,7 @@ import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Semester;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service interface for managing courses.
@@ -11,11 +12,35 @@ import java.util.Optional;
 public interface CourseService {
     Course createCourse(String code, String title, int credits, String instructor, 
                        Semester semester, String department);
+    Course createCourse(String code, String title, int credits, String instructor,
+                       Semester semester, String department, int capacity);
+
+    /**
+     * Creates a batch of courses in one step. The whole batch is validated
+     * before anything is stored: rows that {@link #createCourse} would
+     * refuse, or whose code repeats an earlier row, are rejected and the
+     * rest are loaded.
+     */
+    BulkLoadResult<Course> loadCourses(List<CourseLoad> batch);
+
     Optional<Course> getCourse(String code);
     List<Course> getAllCourses();
+
+    /**
+     * Returns up to pageSize courses ordered by code, starting after the given
+     * token (null for the first page).
+     */
+    Page<Course> getCourses(String pageToken, int pageSize);
+
+    /**
+     * Streams all courses in code order without copying them.
+     */
+    Stream<Course> streamCourses();
+
     List<Course> getCoursesByDepartment(String department);
     List<Course> getCoursesBySemester(Semester semester);
     List<Course> getCoursesByInstructor(String instructorId);
     void updateCourse(Course course);
     void deactivateCourse(String code);
+    void addRegistryListener(CourseRegistryListener listener);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+
+/**
+ * Callback notified when an {@link EnrollmentService} changes a student's
+ * enrollment in a course: the student is enrolled (directly, in bulk or from
+ * the waitlist), unenrolled, or graded through the service.
+ * Listeners may be called while the service holds internal locks, so they
+ * must be quick and must not call back into the service.
+ */
+@FunctionalInterface
+public interface EnrollmentListener {
+    void enrollmentChanged(Student student, Course course);
+}
@@ -0,0 +1,12 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Grade;
+import java.time.LocalDateTime;
+
+/**
+ * A single row of a bulk enrollment load, naming the student and course by
+ * key. The enrollment date may be null for the time of the load, and the
+ * grade may be null.
+ */
+public record EnrollmentLoad(String studentRegNo, String courseCode, LocalDateTime enrollmentDate, Grade grade) {
+}
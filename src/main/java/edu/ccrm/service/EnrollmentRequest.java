@@ -0,0 +1,10 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Student;
+
+/**
+ * A single (student, course) row of a bulk enrollment batch.
+ */
+public record EnrollmentRequest(Student student, Course course) {
+}
@@ -3,17 +3,52 @@ package edu.ccrm.service;
 import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Enrollment;
 import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
 import edu.ccrm.domain.Student;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service interface for managing enrollments.
  */
 public interface EnrollmentService {
     Enrollment enrollStudent(Student student, Course course);
+    BulkEnrollmentResult enrollAll(List<EnrollmentRequest> batch);
+
+    /**
+     * Loads a batch of existing enrollments, with their grades, in one step.
+     * Rows are joined to the given student and course registries by key;
+     * rows naming an unknown student or course, or repeating an earlier row
+     * or an existing enrollment, are rejected. The credit limit, capacity
+     * and waitlist rules of {@link #enrollStudent} are not applied, since
+     * the rows record enrollments that were already accepted elsewhere.
+     */
+    BulkLoadResult<Enrollment> loadEnrollments(List<EnrollmentLoad> batch,
+                                               StudentService students, CourseService courses);
+
     void unenrollStudent(Student student, Course course);
     void recordGrade(Student student, Course course, Grade grade);
     List<Enrollment> getEnrollmentsForStudent(Student student);
     List<Enrollment> getEnrollmentsForCourse(Course course);
+
+    /**
+     * Returns up to pageSize enrollments in a course ordered by student
+     * registration number, starting after the given token (null for the first page).
+     */
+    Page<Enrollment> getEnrollmentsForCourse(Course course, String pageToken, int pageSize);
+
+    /**
+     * Streams a course's enrollments in registration number order without copying them.
+     */
+    Stream<Enrollment> streamEnrollmentsForCourse(Course course);
+
+    List<Student> getWaitlist(Course course);
     double calculateGPA(Student student);
+    double calculateGPA(Student student, Semester semester);
+
+    /**
+     * Registers a listener for enrollment changes made through this service.
+     * Grades set directly on an {@link Enrollment} are not reported.
+     */
+    void addEnrollmentListener(EnrollmentListener listener);
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package edu.ccrm.service;
+
+import java.util.List;
+
+/**
+ * One page of results from a paged list call.
+ *
+ * @param items     the results on this page, in key order
+ * @param nextToken opaque token that fetches the following page, or null on the last page
+ */
+public record Page<T>(List<T> items, String nextToken) {
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -0,0 +1,21 @@
+package edu.ccrm.service;
+
+import edu.ccrm.domain.Enrollment;
+import java.util.function.Consumer;
+
+/**
+ * Enrollment service whose contents can be written to and reloaded from a snapshot.
+ */
+public interface RestorableEnrollmentService extends EnrollmentService {
+    /**
+     * Inserts a previously persisted enrollment as-is, bypassing the credit,
+     * duplicate and capacity checks and the journal. An enrollment whose
+     * (student, course) pair is already present is ignored.
+     */
+    void restoreEnrollment(Enrollment enrollment);
+
+    /**
+     * Visits every enrollment without copying the store.
+     */
+    void forEachEnrollment(Consumer<Enrollment> action);
+}
@@ -0,0 +1,7 @@
+package edu.ccrm.service;
+
+/**
+ * A single row of a bulk student load.
+ */
+public record StudentLoad(String regNo, String fullName, String email, boolean active) {
+}
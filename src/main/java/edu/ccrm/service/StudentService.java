@@ -3,15 +3,55 @@ package edu.ccrm.service;
 import edu.ccrm.domain.Student;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Service interface for managing students.
  */
 public interface StudentService {
     Student createStudent(String regNo, String fullName, String email);
+
+    /**
+     * Creates a batch of students in one step. Rows with a missing field,
+     * or whose registration number or email belongs to an existing student
+     * or a row loaded earlier in the batch, are rejected and the rest are
+     * loaded. A rejected row reserves nothing, so splitting a batch does
+     * not change which rows are loaded.
+     */
+    BulkLoadResult<Student> loadStudents(List<StudentLoad> batch);
+
     Optional<Student> getStudent(String regNo);
+
+    /**
+     * Finds a student by email address, ignoring case.
+     */
+    Optional<Student> findByEmail(String email);
+
+    /**
+     * Returns up to limit students whose full name, or any word-aligned
+     * part of it, starts with the given prefix, ignoring case.
+     */
+    List<Student> searchByName(String prefix, int limit);
     List<Student> getAllStudents();
+
+    /**
+     * Returns up to pageSize students ordered by registration number, starting
+     * after the given token (null for the first page).
+     */
+    Page<Student> getStudents(String pageToken, int pageSize);
+
+    /**
+     * Streams all students without copying them, in an order defined by the
+     * implementation; {@code DefaultStudentService} uses registration number order.
+     */
+    Stream<Student> streamStudents();
+
     List<Student> getActiveStudents();
+
+    /**
+     * Returns the number of active students in O(1).
+     */
+    int getActiveStudentCount();
     void updateStudent(Student student);
     void deactivateStudent(String regNo);
 }
\ No newline at end of file
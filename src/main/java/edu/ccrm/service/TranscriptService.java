@@ -1,12 +1,38 @@
 package edu.ccrm.service;
 
 import edu.ccrm.domain.Student;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 /**
  * Service interface for generating transcripts.
  */
 public interface TranscriptService {
     String generateTranscript(Student student);
+
+    /**
+     * Writes the transcript text to the target, exactly as returned by
+     * {@link #generateTranscript}, without building it as a String first.
+     */
+    void writeTranscript(Student student, Appendable out) throws IOException;
+
+    /**
+     * Writes the transcript text to a byte stream in the given charset and
+     * flushes it. The stream is left open.
+     */
+    void writeTranscript(Student student, OutputStream out, Charset charset) throws IOException;
+
     void printTranscript(Student student);
-    byte[] generateTranscriptPDF(Student student); // For future implementation
-}
\ No newline at end of file
+
+    /**
+     * Returns the transcript as a text-only PDF document.
+     */
+    byte[] generateTranscriptPDF(Student student);
+
+    /**
+     * Writes the transcript as a text-only PDF document to a byte stream and
+     * flushes it. The stream is left open.
+     */
+    void writeTranscriptPDF(Student student, OutputStream out) throws IOException;
+}
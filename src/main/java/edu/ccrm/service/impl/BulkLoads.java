@@ -0,0 +1,94 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.BulkLoadResult.Reason;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.StudentService;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Batch validation shared by the bulk load paths. Hash tables are sized
+ * for the whole batch up front, so they never rehash while it is checked.
+ */
+final class BulkLoads {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private BulkLoads() {
+    }
+
+    /**
+     * Returns a HashMap or HashSet capacity that holds the given number of
+     * entries without resizing at the default load factor.
+     */
+    static int hashCapacity(int entries) {
+        return (int) Math.min(Integer.MAX_VALUE, entries * 4L / 3 + 1);
+    }
+
+    /**
+     * Joins enrollment rows to their students and courses in one pass.
+     * Each distinct registration number and course code is looked up once
+     * and kept in a hash table that later rows probe. Rows with a missing
+     * key, an unknown student or course, or a (student, course) pair seen
+     * earlier in the batch are rejected into the result. Rows without an
+     * enrollment date are given the time of the join.
+     *
+     * @return the remaining rows in batch order
+     */
+    static List<JoinedEnrollment> join(List<EnrollmentLoad> batch, StudentService students,
+                                       CourseService courses, BulkLoadResult<Enrollment> result) {
+        int capacity = hashCapacity(batch.size());
+        Map<String, Student> studentTable = new HashMap<>(capacity);
+        Map<String, Course> courseTable = new HashMap<>(capacity);
+        Set<String> pairs = new HashSet<>(capacity);
+        List<JoinedEnrollment> joined = new ArrayList<>(batch.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int row = 0; row < batch.size(); row++) {
+            EnrollmentLoad load = batch.get(row);
+            if (load == null || load.studentRegNo() == null || load.courseCode() == null) {
+                result.reject(row, Reason.INVALID_ROW, "Student and course are required");
+                continue;
+            }
+            String regNo = load.studentRegNo();
+            String code = load.courseCode();
+            Student student = studentTable.get(regNo);
+            if (student == null && !studentTable.containsKey(regNo)) {
+                student = students.getStudent(regNo).orElse(null);
+                studentTable.put(regNo, student);
+            }
+            Course course = courseTable.get(code);
+            if (course == null && !courseTable.containsKey(code)) {
+                course = courses.getCourse(code).orElse(null);
+                courseTable.put(code, course);
+            }
+            if (student == null) {
+                result.reject(row, Reason.UNKNOWN_REFERENCE, "Student " + regNo + " not found");
+            } else if (course == null) {
+                result.reject(row, Reason.UNKNOWN_REFERENCE, "Course " + code + " not found");
+            } else if (!pairs.add(regNo + KEY_SEPARATOR + code)) {
+                result.reject(row, Reason.DUPLICATE_IN_BATCH,
+                    "Student " + regNo + " is enrolled in course " + code + " by an earlier row");
+            } else {
+                LocalDateTime enrolledAt = load.enrollmentDate() != null ? load.enrollmentDate() : now;
+                joined.add(new JoinedEnrollment(row, student, course, enrolledAt, load.grade()));
+            }
+        }
+        return joined;
+    }
+
+    static String alreadyEnrolledMessage(Student student, Course course) {
+        return "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode();
+    }
+
+    /**
+     * An enrollment row resolved to its student and course, with its
+     * enrollment date filled in.
+     */
+    record JoinedEnrollment(int row, Student student, Course course, LocalDateTime enrollmentDate, Grade grade) {
+    }
+}
@@ -0,0 +1,141 @@
+package edu.ccrm.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Appendable that encodes text into a byte buffer and writes it to an
+ * OutputStream when full or flushed. ASCII characters of ASCII-compatible
+ * charsets are copied as bytes and UTF-8 is encoded by hand; other text goes
+ * through the charset's encoder. Text is encoded one appended sequence at a
+ * time, so a surrogate pair must not be split across two appends.
+ */
+class ByteAppender implements Appendable {
+    private static final int BUFFER_BYTES = 1024;
+
+    private final OutputStream out;
+    private final Charset charset;
+    private final boolean asciiCompatible;
+    private final boolean utf8;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+
+    ByteAppender(OutputStream out, Charset charset) {
+        this.out = out;
+        this.charset = charset;
+        this.utf8 = charset.equals(StandardCharsets.UTF_8);
+        this.asciiCompatible = utf8 || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public ByteAppender append(CharSequence csq) throws IOException {
+        CharSequence text = csq != null ? csq : "null";
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public ByteAppender append(CharSequence csq, int start, int end) throws IOException {
+        CharSequence text = csq != null ? csq : "null";
+        int i = start;
+        if (asciiCompatible) {
+            // Copy the ASCII prefix a buffer-load at a time
+            while (i < end) {
+                if (position == buffer.length) {
+                    flushBuffer();
+                }
+                int limit = Math.min(end, i + buffer.length - position);
+                int p = position;
+                while (i < limit && text.charAt(i) < 0x80) {
+                    buffer[p++] = (byte) text.charAt(i++);
+                }
+                position = p;
+                if (i < limit) {
+                    break;
+                }
+            }
+        }
+        if (i < end) {
+            if (utf8) {
+                appendUtf8(text, i, end);
+            } else {
+                write(charset.encode(CharBuffer.wrap(text, i, end)));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ByteAppender append(char c) throws IOException {
+        if (asciiCompatible && c < 0x80) {
+            put(c);
+            return this;
+        }
+        return append(String.valueOf(c), 0, 1);
+    }
+
+    /**
+     * Encodes UTF-8 by hand. Like {@link String#getBytes}, writes '?' for
+     * an unpaired surrogate.
+     */
+    private void appendUtf8(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | c >> 6);
+                put(0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                put(0xE0 | c >> 12);
+                put(0x80 | c >> 6 & 0x3F);
+                put(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                put(0xF0 | codePoint >> 18);
+                put(0x80 | codePoint >> 12 & 0x3F);
+                put(0x80 | codePoint >> 6 & 0x3F);
+                put(0x80 | codePoint & 0x3F);
+            } else {
+                put('?');
+            }
+        }
+    }
+
+    private void put(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Writes buffered bytes to the stream and flushes it.
+     */
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int length = Math.min(bytes.remaining(), buffer.length - position);
+            bytes.get(buffer, position, length);
+            position += length;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
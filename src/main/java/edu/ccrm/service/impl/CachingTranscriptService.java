@@ -0,0 +1,260 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.PdfTextWriter;
+import edu.ccrm.service.CourseRegistryListener;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.TranscriptService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TranscriptService decorator that keeps the most recently used rendered
+ * transcripts, keyed by registration number.
+ *
+ * <p>An entry is dropped when the enrollment service reports a change to
+ * one of the student's enrollments or grades, and when a course on the
+ * transcript changes its title, credits or semester or is replaced in the
+ * course service. A cached transcript is also ignored if the student's name
+ * no longer matches the one it was rendered with. Grades set directly on an
+ * {@link Enrollment} bypass the service; call {@link #invalidate} after such
+ * changes.
+ *
+ * <p>Transcripts are rendered outside the cache lock. A rendering that
+ * overlaps an invalidation of its student, or any course change, is returned
+ * but not cached.
+ */
+public class CachingTranscriptService implements TranscriptService, CourseRegistryListener {
+    private final TranscriptService delegate;
+    private final EnrollmentService enrollmentService;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<String>> holdersByCourse = new HashMap<>();
+    private final CourseListener courseListener = this::onCourseChanged;
+    private long courseGeneration;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries the number of transcripts to keep; least recently used ones are evicted first
+     */
+    public CachingTranscriptService(TranscriptService delegate, EnrollmentService enrollmentService,
+                                    CourseService courseService, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "Transcript service cannot be null");
+        this.enrollmentService = Objects.requireNonNull(enrollmentService, "Enrollment service cannot be null");
+        this.maxEntries = maxEntries;
+        enrollmentService.addEnrollmentListener((student, course) -> invalidate(student.getRegNo()));
+        courseService.addRegistryListener(this);
+    }
+
+    @Override
+    public String generateTranscript(Student student) {
+        String regNo = student.getRegNo();
+        Entry pending;
+        synchronized (entries) {
+            Entry entry = entries.get(regNo);
+            if (entry != null && entry.transcript != null
+                    && Objects.equals(entry.fullName, student.getFullName())) {
+                hits.incrementAndGet();
+                return entry.transcript;
+            }
+            misses.incrementAndGet();
+            if (entry != null) {
+                remove(regNo);
+            }
+            pending = new Entry(student.getFullName(), courseGeneration);
+            entries.put(regNo, pending);
+        }
+
+        // Follow the courses before rendering, so a change made meanwhile is seen
+        Set<String> courseCodes = new HashSet<>();
+        for (Enrollment enrollment : enrollmentService.getEnrollmentsForStudent(student)) {
+            enrollment.getCourse().addListener(courseListener);
+            courseCodes.add(enrollment.getCourse().getCode());
+        }
+        String transcript = delegate.generateTranscript(student);
+
+        synchronized (entries) {
+            if (entries.get(regNo) == pending && pending.generation == courseGeneration) {
+                pending.transcript = transcript;
+                pending.courseCodes = courseCodes;
+                courseCodes.forEach(code -> holdersByCourse.computeIfAbsent(code, k -> new HashSet<>()).add(regNo));
+                evictOverflow();
+            } else if (entries.get(regNo) == pending) {
+                entries.remove(regNo);
+            }
+        }
+        return transcript;
+    }
+
+    @Override
+    public void writeTranscript(Student student, Appendable out) throws IOException {
+        out.append(generateTranscript(student));
+    }
+
+    @Override
+    public void writeTranscript(Student student, OutputStream out, Charset charset) throws IOException {
+        out.write(generateTranscript(student).getBytes(charset));
+        out.flush();
+    }
+
+    @Override
+    public void printTranscript(Student student) {
+        System.out.println(generateTranscript(student));
+    }
+
+    @Override
+    public byte[] generateTranscriptPDF(Student student) {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(4096);
+        try {
+            writeTranscriptPDF(student, pdf);
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return pdf.toByteArray();
+    }
+
+    /**
+     * Lays out the cached transcript text, so the PDF matches the delegate's.
+     */
+    @Override
+    public void writeTranscriptPDF(Student student, OutputStream out) throws IOException {
+        PdfTextWriter pdf = new PdfTextWriter(out, "Transcript of " + student.getFullName());
+        pdf.append(generateTranscript(student));
+        pdf.finish();
+    }
+
+    /**
+     * Drops the cached transcript of a student, if any.
+     */
+    public void invalidate(String regNo) {
+        synchronized (entries) {
+            if (remove(regNo)) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     */
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), invalidations.get(), evictions.get(), entries.size());
+        }
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        invalidateHolders(course);
+    }
+
+    @Override
+    public void courseRemoved(Course course) {
+        invalidateHolders(course);
+    }
+
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        if (property == Course.Property.TITLE || property == Course.Property.CREDITS
+                || property == Course.Property.SEMESTER) {
+            invalidateHolders(course);
+        }
+    }
+
+    private void invalidateHolders(Course course) {
+        synchronized (entries) {
+            courseGeneration++;
+            Set<String> holders = holdersByCourse.get(course.getCode());
+            if (holders != null) {
+                for (String regNo : new ArrayList<>(holders)) {
+                    invalidate(regNo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts least recently used entries beyond the size limit. Caller must
+     * hold the entries lock.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted.getKey(), evicted.getValue());
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Caller must hold the entries lock.
+     *
+     * @return true if an entry was removed
+     */
+    private boolean remove(String regNo) {
+        Entry entry = entries.remove(regNo);
+        unindex(regNo, entry);
+        return entry != null;
+    }
+
+    private void unindex(String regNo, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (String code : entry.courseCodes) {
+            Set<String> holders = holdersByCourse.get(code);
+            if (holders != null && holders.remove(regNo) && holders.isEmpty()) {
+                holdersByCourse.remove(code);
+            }
+        }
+    }
+
+    /**
+     * Cache counters. Invalidations count entries dropped because their data
+     * changed; evictions those dropped to stay within the size limit.
+     */
+    public record Stats(long hits, long misses, long invalidations, long evictions, int size) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d invalidations, %d evictions, %d cached",
+                hits, misses, hitRate() * 100, invalidations, evictions, size);
+        }
+    }
+
+    /**
+     * A cached transcript, or a pending one while {@code transcript} is null.
+     */
+    private static final class Entry {
+        private final String fullName;
+        private final long generation;
+        private String transcript;
+        private Set<String> courseCodes = Set.of();
+
+        Entry(String fullName, long generation) {
+            this.fullName = fullName;
+            this.generation = generation;
+        }
+    }
+}
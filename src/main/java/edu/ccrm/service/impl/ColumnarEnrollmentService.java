@@ -0,0 +1,540 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.io.Journal;
+import edu.ccrm.io.JournalRecord;
+import edu.ccrm.service.BulkEnrollmentResult;
+import edu.ccrm.service.BulkEnrollmentResult.Reason;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentListener;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentRequest;
+import edu.ccrm.service.Page;
+import edu.ccrm.service.RestorableEnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.impl.BulkLoads.JoinedEnrollment;
+import edu.ccrm.service.impl.ColumnarEnrollmentStore.IntList;
+import edu.ccrm.util.CourseFullException;
+import edu.ccrm.util.DuplicateEnrollmentException;
+import edu.ccrm.util.MaxCreditLimitExceededException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * EnrollmentService for very large terms, backed by a {@link ColumnarEnrollmentStore}.
+ *
+ * <p>Enforces the same duplicate, credit-limit, capacity and waitlist rules
+ * as {@link DefaultEnrollmentService}, but keeps enrollments as primitive
+ * columns rather than objects, and does not add them to
+ * {@link Student#getEnrollments()}. Returned enrollments are views over the
+ * store; enrollment times are kept to the second.
+ *
+ * <p>Thread-safe: mutations take the store's write lock and reads its read
+ * lock, so writes are serialized. Prefer {@link DefaultEnrollmentService}
+ * when many threads register concurrently and memory is not the constraint.
+ */
+public class ColumnarEnrollmentService implements RestorableEnrollmentService {
+    private static final int MAX_CREDITS_PER_SEMESTER = 21;
+    private final ColumnarEnrollmentStore store = new ColumnarEnrollmentStore();
+    private final List<SeatLedger> seatLedgers = new ArrayList<>();
+    private final CourseListener courseListener = this::onCourseChanged;
+    private final List<EnrollmentListener> listeners = new CopyOnWriteArrayList<>();
+    private final Journal journal;
+
+    public ColumnarEnrollmentService() {
+        this(Journal.NONE);
+    }
+
+    /**
+     * Creates a service that records every mutation in the given journal.
+     */
+    public ColumnarEnrollmentService(Journal journal) {
+        this.journal = Objects.requireNonNull(journal, "Journal cannot be null");
+    }
+
+    @Override
+    public Enrollment enrollStudent(Student student, Course course) {
+        Objects.requireNonNull(student, "Student cannot be null");
+        Objects.requireNonNull(course, "Course cannot be null");
+
+        Enrollment enrollment = null;
+        long sequence = 0;
+        store.lock.writeLock().lock();
+        try {
+            int s = store.studentIndex(student);
+            int c = courseIndex(course);
+            if (store.find(s, c) >= 0) {
+                throw new DuplicateEnrollmentException(duplicateMessage(student, course));
+            }
+            if (creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                throw new MaxCreditLimitExceededException(creditLimitMessage(course));
+            }
+
+            SeatLedger ledger = seatLedgers.get(c);
+            if (ledger.tryAcquire(course.getCapacity())) {
+                int row = store.add(s, c, LocalDateTime.now(), null);
+                enrollment = store.view(row);
+                sequence = journalEnrollment(row);
+                fireChanged(student, course);
+            } else if (!ledger.enqueue(student)) {
+                throw new DuplicateEnrollmentException(
+                    "Student " + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+        course.addListener(courseListener);
+
+        if (enrollment == null) {
+            throw new CourseFullException("Course " + course.getCode() + " is full; student "
+                + student.getRegNo() + " has been added to the waitlist");
+        }
+        return enrollment;
+    }
+
+    @Override
+    public BulkEnrollmentResult enrollAll(List<EnrollmentRequest> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkEnrollmentResult result = new BulkEnrollmentResult();
+        Set<Course> touchedCourses = new HashSet<>();
+        long lastSequence = 0;
+
+        store.lock.writeLock().lock();
+        try {
+            for (int row = 0; row < batch.size(); row++) {
+                EnrollmentRequest request = batch.get(row);
+                if (request == null || request.student() == null || request.course() == null) {
+                    result.reject(row, request, Reason.INVALID_REQUEST, "Student and course are required");
+                    continue;
+                }
+                Student student = request.student();
+                Course course = request.course();
+                int s = store.studentIndex(student);
+                int c = courseIndex(course);
+                SeatLedger ledger = seatLedgers.get(c);
+
+                if (store.find(s, c) >= 0) {
+                    result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, duplicateMessage(student, course));
+                } else if (creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                    result.reject(row, request, Reason.MAX_CREDITS_EXCEEDED, creditLimitMessage(course));
+                } else if (ledger.tryAcquire(course.getCapacity())) {
+                    int added = store.add(s, c, LocalDateTime.now(), null);
+                    lastSequence = journalEnrollment(added);
+                    result.accept(row, store.view(added));
+                    touchedCourses.add(course);
+                    fireChanged(student, course);
+                } else if (ledger.enqueue(student)) {
+                    result.reject(row, request, Reason.WAITLISTED, "Course " + course.getCode()
+                        + " is full; student " + student.getRegNo() + " has been added to the waitlist");
+                    touchedCourses.add(course);
+                } else {
+                    result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, "Student "
+                        + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+                }
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(lastSequence);
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The whole batch is appended to the columns under one acquisition of
+     * the write lock, and made durable with a single journal wait.
+     */
+    @Override
+    public BulkLoadResult<Enrollment> loadEnrollments(List<EnrollmentLoad> batch,
+                                                      StudentService students, CourseService courses) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Enrollment> result = new BulkLoadResult<>(batch.size());
+        List<JoinedEnrollment> joined = BulkLoads.join(batch, students, courses, result);
+
+        Set<Course> touchedCourses = new HashSet<>();
+        long lastSequence = 0;
+        store.lock.writeLock().lock();
+        try {
+            for (JoinedEnrollment row : joined) {
+                Student student = row.student();
+                Course course = row.course();
+                int s = store.studentIndex(student);
+                int c = courseIndex(course);
+                if (store.find(s, c) >= 0) {
+                    result.reject(row.row(), BulkLoadResult.Reason.ALREADY_EXISTS,
+                        BulkLoads.alreadyEnrolledMessage(student, course));
+                    continue;
+                }
+                int added = store.add(s, c, row.enrollmentDate(), row.grade());
+                seatLedgers.get(c).acquire();
+                lastSequence = journalEnrollment(added);
+                if (row.grade() != null) {
+                    lastSequence = journal.append(JournalRecord.Type.RECORD_GRADE,
+                        student.getRegNo(), course.getCode(), row.grade().name());
+                }
+                result.load(row.row(), store.view(added));
+                touchedCourses.add(course);
+                fireChanged(student, course);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(lastSequence);
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        return result;
+    }
+
+    @Override
+    public void unenrollStudent(Student student, Course course) {
+        long sequence = 0;
+        store.lock.writeLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            if (c < 0) {
+                return;
+            }
+            int row = store.find(store.findStudent(student.getRegNo()), c);
+            if (row >= 0) {
+                store.remove(row);
+                seatLedgers.get(c).release();
+                sequence = journal.append(JournalRecord.Type.UNENROLL, student.getRegNo(), course.getCode());
+                fireChanged(student, course);
+                sequence = Math.max(sequence, promoteWaitlisted(c));
+            } else {
+                seatLedgers.get(c).removeFromWaitlist(student);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public void recordGrade(Student student, Course course, Grade grade) {
+        Objects.requireNonNull(grade, "Grade cannot be null");
+
+        long sequence = 0;
+        store.lock.writeLock().lock();
+        try {
+            int row = store.find(store.findStudent(student.getRegNo()), store.findCourse(course.getCode()));
+            if (row >= 0) {
+                store.setGrade(row, grade);
+                sequence = journal.append(JournalRecord.Type.RECORD_GRADE,
+                    student.getRegNo(), course.getCode(), grade.name());
+                fireChanged(student, course);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public List<Enrollment> getEnrollmentsForStudent(Student student) {
+        store.lock.readLock().lock();
+        try {
+            int s = store.findStudent(student.getRegNo());
+            return s >= 0 ? views(store.rowsOfStudent(s)) : new ArrayList<>();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Enrollment> getEnrollmentsForCourse(Course course) {
+        store.lock.readLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            return c >= 0 ? views(store.rowsOfCourse(c)) : new ArrayList<>();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pages through a course's enrollments in registration number order. The
+     * roster is kept in enrollment order, so each page is a bounded top-N
+     * selection over it, O(roster * log pageSize).
+     */
+    @Override
+    public Page<Enrollment> getEnrollmentsForCourse(Course course, String pageToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        store.lock.readLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            if (c < 0) {
+                return new Page<>(new ArrayList<>(), null);
+            }
+            TreeMap<String, Integer> smallest = new TreeMap<>();
+            IntList roster = store.rowsOfCourse(c);
+            for (int i = 0; i < roster.size(); i++) {
+                int row = roster.get(i);
+                String regNo = store.student(store.studentOf(row)).getRegNo();
+                if (pageToken == null || regNo.compareTo(pageToken) > 0) {
+                    smallest.put(regNo, row);
+                    if (smallest.size() > pageSize + 1) {
+                        smallest.pollLastEntry();
+                    }
+                }
+            }
+            boolean hasNext = smallest.size() > pageSize;
+            if (hasNext) {
+                smallest.pollLastEntry();
+            }
+            List<Enrollment> items = new ArrayList<>(smallest.size());
+            smallest.values().forEach(row -> items.add(store.view(row)));
+            return new Page<>(items, hasNext ? smallest.lastKey() : null);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams a course's enrollments in registration number order. Only the
+     * row numbers, sorted by registration number, are copied up front; views
+     * are created as the stream is consumed.
+     */
+    @Override
+    public Stream<Enrollment> streamEnrollmentsForCourse(Course course) {
+        int[] rows;
+        store.lock.readLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            TreeMap<String, Integer> byRegNo = new TreeMap<>();
+            if (c >= 0) {
+                IntList roster = store.rowsOfCourse(c);
+                for (int i = 0; i < roster.size(); i++) {
+                    int row = roster.get(i);
+                    byRegNo.put(store.student(store.studentOf(row)).getRegNo(), row);
+                }
+            }
+            rows = byRegNo.values().stream().mapToInt(Integer::intValue).toArray();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        return Arrays.stream(rows).mapToObj(this::view);
+    }
+
+    @Override
+    public void restoreEnrollment(Enrollment enrollment) {
+        Course course = enrollment.getCourse();
+        store.lock.writeLock().lock();
+        try {
+            int s = store.studentIndex(enrollment.getStudent());
+            int c = courseIndex(course);
+            if (store.find(s, c) >= 0) {
+                return;
+            }
+            store.add(s, c, enrollment.getEnrollmentDate(), enrollment.getGrade());
+            seatLedgers.get(c).acquire();
+            fireChanged(enrollment.getStudent(), course);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        course.addListener(courseListener);
+    }
+
+    /**
+     * Visits every enrollment in insertion order. Holds the read lock for the
+     * whole iteration, so writers wait until it completes.
+     */
+    @Override
+    public void forEachEnrollment(Consumer<Enrollment> action) {
+        store.lock.readLock().lock();
+        try {
+            for (int s = 0; s < store.studentCount(); s++) {
+                IntList rows = store.rowsOfStudent(s);
+                for (int i = 0; i < rows.size(); i++) {
+                    action.accept(store.view(rows.get(i)));
+                }
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> getWaitlist(Course course) {
+        store.lock.readLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            return c >= 0 ? seatLedgers.get(c).waitlist() : new ArrayList<>();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addEnrollmentListener(EnrollmentListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
+    }
+
+    @Override
+    public double calculateGPA(Student student) {
+        return calculateGPA(student, null);
+    }
+
+    /**
+     * Computes the GPA from the student's rows, optionally limited to one
+     * semester. Uses the same hundredths-of-a-point arithmetic as
+     * {@link GradeAggregate}, so results match {@link DefaultEnrollmentService}.
+     */
+    @Override
+    public double calculateGPA(Student student, Semester semester) {
+        store.lock.readLock().lock();
+        try {
+            int s = store.findStudent(student.getRegNo());
+            if (s < 0) {
+                return 0.0;
+            }
+            long points = 0;
+            int credits = 0;
+            IntList rows = store.rowsOfStudent(s);
+            for (int i = 0; i < rows.size(); i++) {
+                int row = rows.get(i);
+                Grade grade = store.grade(row);
+                Course course = store.course(store.courseOf(row));
+                if (grade != null && (semester == null || course.getSemester() == semester)) {
+                    points += GradeAggregate.pointsOf(grade) * course.getCredits();
+                    credits += course.getCredits();
+                }
+            }
+            return credits > 0 ? (points / 100.0) / credits : 0.0;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live enrollments.
+     */
+    public int size() {
+        store.lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        // Credits and semester are read from the course on demand; only capacity needs action
+        if (property != Course.Property.CAPACITY) {
+            return;
+        }
+        long sequence = 0;
+        store.lock.writeLock().lock();
+        try {
+            int c = store.findCourse(course.getCode());
+            if (c >= 0) {
+                sequence = promoteWaitlisted(c);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Moves waitlisted students into free seats in FIFO order, dropping those
+     * who can no longer take the course. Caller must hold the write lock.
+     *
+     * @return the journal sequence of the last enrollment added, or 0
+     */
+    private long promoteWaitlisted(int c) {
+        SeatLedger ledger = seatLedgers.get(c);
+        Course course = store.course(c);
+        long lastSequence = 0;
+        while (ledger.hasWaitlist() && ledger.hasFreeSeat(course.getCapacity())) {
+            Student next = ledger.poll();
+            int s = store.studentIndex(next);
+            if (store.find(s, c) >= 0
+                    || creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                continue;
+            }
+            ledger.tryAcquire(course.getCapacity());
+            lastSequence = journalEnrollment(store.add(s, c, LocalDateTime.now(), null));
+            fireChanged(next, course);
+        }
+        return lastSequence;
+    }
+
+    private void fireChanged(Student student, Course course) {
+        listeners.forEach(listener -> listener.enrollmentChanged(student, course));
+    }
+
+    /**
+     * Returns the dictionary index of a course, creating its seat ledger if
+     * new. Caller must hold the write lock.
+     */
+    private int courseIndex(Course course) {
+        int c = store.courseIndex(course);
+        while (seatLedgers.size() <= c) {
+            seatLedgers.add(new SeatLedger());
+        }
+        return c;
+    }
+
+    /**
+     * Sums the student's credits in a semester. Caller must hold a lock.
+     */
+    private int creditsFor(int s, Semester semester) {
+        int credits = 0;
+        IntList rows = store.rowsOfStudent(s);
+        for (int i = 0; i < rows.size(); i++) {
+            Course course = store.course(store.courseOf(rows.get(i)));
+            if (course.getSemester() == semester) {
+                credits += course.getCredits();
+            }
+        }
+        return credits;
+    }
+
+    /**
+     * Appends an ENROLL record. Caller must hold the write lock.
+     */
+    private long journalEnrollment(int row) {
+        return journal.append(JournalRecord.Type.ENROLL, store.student(store.studentOf(row)).getRegNo(),
+            store.course(store.courseOf(row)).getCode(), store.enrollmentDate(row).toString());
+    }
+
+    private List<Enrollment> views(IntList rows) {
+        List<Enrollment> views = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            views.add(store.view(rows.get(i)));
+        }
+        return views;
+    }
+
+    private Enrollment view(int row) {
+        store.lock.readLock().lock();
+        try {
+            return store.view(row);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    private static String duplicateMessage(Student student, Course course) {
+        return "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode();
+    }
+
+    private static String creditLimitMessage(Course course) {
+        return "Enrolling in " + course.getCode() + " would exceed the maximum credit limit of "
+            + MAX_CREDITS_PER_SEMESTER;
+    }
+}
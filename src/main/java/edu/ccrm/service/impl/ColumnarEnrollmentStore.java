@@ -0,0 +1,275 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Student;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Enrollment store laid out as a struct of primitive arrays.
+ *
+ * <p>Row {@code r} is one enrollment: {@code studentColumn[r]} and
+ * {@code courseColumn[r]} index into the student and course dictionaries,
+ * {@code dateColumn[r]} holds the enrollment time in epoch seconds (UTC) and
+ * {@code gradeColumn[r]} the grade ordinal, or -1 if ungraded. Each student
+ * and course keeps an {@link IntList} of its rows. A live enrollment
+ * therefore costs 25 bytes of arrays instead of a graph of objects;
+ * {@link Enrollment} instances are created only as {@link View}s on demand.
+ *
+ * <p>Rows are appended and never reused. A removed row is only unlinked
+ * from the row lists, so a view obtained earlier keeps reading its own data.
+ *
+ * <p>All access must hold {@link #lock}: the read lock to read, the write
+ * lock to modify.
+ */
+class ColumnarEnrollmentStore {
+    private static final int INITIAL_ROWS = 1024;
+    private static final Grade[] GRADES = Grade.values();
+
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Student> students = new ArrayList<>();
+    private final Map<String, Integer> studentIndex = new HashMap<>();
+    private final List<IntList> rowsByStudent = new ArrayList<>();
+    private final List<Course> courses = new ArrayList<>();
+    private final Map<String, Integer> courseIndex = new HashMap<>();
+    private final List<IntList> rowsByCourse = new ArrayList<>();
+
+    private int[] studentColumn = new int[INITIAL_ROWS];
+    private int[] courseColumn = new int[INITIAL_ROWS];
+    private long[] dateColumn = new long[INITIAL_ROWS];
+    private byte[] gradeColumn = new byte[INITIAL_ROWS];
+    private int rows;
+    private int live;
+
+    /**
+     * Returns the dictionary index of a student, adding it if new.
+     */
+    int studentIndex(Student student) {
+        Integer index = studentIndex.get(student.getRegNo());
+        if (index != null) {
+            students.set(index, student);
+            return index;
+        }
+        studentIndex.put(student.getRegNo(), students.size());
+        students.add(student);
+        rowsByStudent.add(new IntList());
+        return students.size() - 1;
+    }
+
+    /**
+     * Returns the dictionary index of a student, or -1 if it was never added.
+     */
+    int findStudent(String regNo) {
+        Integer index = studentIndex.get(regNo);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the dictionary index of a course, adding it if new.
+     */
+    int courseIndex(Course course) {
+        Integer index = courseIndex.get(course.getCode());
+        if (index != null) {
+            courses.set(index, course);
+            return index;
+        }
+        courseIndex.put(course.getCode(), courses.size());
+        courses.add(course);
+        rowsByCourse.add(new IntList());
+        return courses.size() - 1;
+    }
+
+    /**
+     * Returns the dictionary index of a course, or -1 if it was never added.
+     */
+    int findCourse(String code) {
+        Integer index = courseIndex.get(code);
+        return index != null ? index : -1;
+    }
+
+    int studentCount() {
+        return students.size();
+    }
+
+    Student student(int studentIndex) {
+        return students.get(studentIndex);
+    }
+
+    Course course(int courseIndex) {
+        return courses.get(courseIndex);
+    }
+
+    /**
+     * Returns the live row for a (student, course) pair, or -1. Scans the
+     * student's rows, which are few.
+     */
+    int find(int student, int course) {
+        if (student < 0 || course < 0) {
+            return -1;
+        }
+        IntList studentRows = rowsByStudent.get(student);
+        for (int i = 0; i < studentRows.size(); i++) {
+            int row = studentRows.get(i);
+            if (courseColumn[row] == course) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    int add(int student, int course, LocalDateTime enrollmentDate, Grade grade) {
+        if (rows == studentColumn.length) {
+            int capacity = rows + (rows >> 1);
+            studentColumn = Arrays.copyOf(studentColumn, capacity);
+            courseColumn = Arrays.copyOf(courseColumn, capacity);
+            dateColumn = Arrays.copyOf(dateColumn, capacity);
+            gradeColumn = Arrays.copyOf(gradeColumn, capacity);
+        }
+        int row = rows++;
+        studentColumn[row] = student;
+        courseColumn[row] = course;
+        dateColumn[row] = enrollmentDate.toEpochSecond(ZoneOffset.UTC);
+        gradeColumn[row] = grade != null ? (byte) grade.ordinal() : -1;
+        rowsByStudent.get(student).add(row);
+        rowsByCourse.get(course).add(row);
+        live++;
+        return row;
+    }
+
+    void remove(int row) {
+        rowsByStudent.get(studentColumn[row]).removeValue(row);
+        rowsByCourse.get(courseColumn[row]).removeValue(row);
+        live--;
+    }
+
+    Grade grade(int row) {
+        byte ordinal = gradeColumn[row];
+        return ordinal >= 0 ? GRADES[ordinal] : null;
+    }
+
+    void setGrade(int row, Grade grade) {
+        gradeColumn[row] = grade != null ? (byte) grade.ordinal() : -1;
+    }
+
+    LocalDateTime enrollmentDate(int row) {
+        return LocalDateTime.ofEpochSecond(dateColumn[row], 0, ZoneOffset.UTC);
+    }
+
+    int studentOf(int row) {
+        return studentColumn[row];
+    }
+
+    int courseOf(int row) {
+        return courseColumn[row];
+    }
+
+    IntList rowsOfStudent(int student) {
+        return rowsByStudent.get(student);
+    }
+
+    IntList rowsOfCourse(int course) {
+        return rowsByCourse.get(course);
+    }
+
+    int size() {
+        return live;
+    }
+
+    /**
+     * Materializes an enrollment view over a row.
+     */
+    Enrollment view(int row) {
+        return new View(this, row);
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        /**
+         * Removes the first occurrence of a value, preserving order.
+         */
+        void removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Enrollment backed by a store row. The grade and date are read from the
+     * columns on each call, and setting the grade writes through to the store.
+     */
+    static final class View extends Enrollment {
+        private final ColumnarEnrollmentStore store;
+        private final int row;
+
+        private View(ColumnarEnrollmentStore store, int row) {
+            super(store.student(store.studentOf(row)), store.course(store.courseOf(row)), null);
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public LocalDateTime getEnrollmentDate() {
+            store.lock.readLock().lock();
+            try {
+                return store.enrollmentDate(row);
+            } finally {
+                store.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Grade getGrade() {
+            store.lock.readLock().lock();
+            try {
+                return store.grade(row);
+            } finally {
+                store.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void setGrade(Grade grade) {
+            store.lock.writeLock().lock();
+            try {
+                store.setGrade(row, grade);
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+        }
+    }
+}
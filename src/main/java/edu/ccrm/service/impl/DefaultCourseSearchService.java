@@ -0,0 +1,264 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
+import edu.ccrm.service.CourseRegistryListener;
+import edu.ccrm.service.CourseSearchService;
+import edu.ccrm.service.CourseService;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Default implementation of CourseSearchService.
+ *
+ * <p>Course codes and title words are held in two prefix tries. Every trie
+ * node keeps the set of courses having a token that starts with the node's
+ * prefix, and the set of courses having a token equal to it, so the node
+ * doubles as the inverted-index posting list for that token. Resolving a
+ * query term is a walk of its characters; no token list is scanned.
+ *
+ * <p>Each query term must match a course (as a code or title-word prefix)
+ * for the course to be returned. Results are ranked by how strongly the
+ * terms match: exact code, code prefix, exact title word, title-word prefix.
+ * The index follows courses added to or removed from the course service and
+ * title changes made through {@link Course#setTitle}.
+ */
+public class DefaultCourseSearchService implements CourseSearchService, CourseRegistryListener {
+    private static final int CODE_EXACT = 8;
+    private static final int CODE_PREFIX = 4;
+    private static final int TITLE_EXACT = 2;
+    private static final int TITLE_PREFIX = 1;
+
+    private final Node codeTrie = new Node();
+    private final Node titleTrie = new Node();
+    private final Map<Course, IndexedTokens> indexed = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CourseListener courseListener = this::onCourseChanged;
+
+    public DefaultCourseSearchService(CourseService courseService) {
+        courseService.streamCourses().forEach(this::courseAdded);
+        courseService.addRegistryListener(this);
+    }
+
+    @Override
+    public List<Course> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Resolve each term to its code and title trie nodes
+            Node[] codeNodes = new Node[terms.size()];
+            Node[] titleNodes = new Node[terms.size()];
+            int selective = -1;
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                codeNodes[i] = codeTrie.find(term);
+                titleNodes[i] = titleTrie.find(term);
+                int matches = size(codeNodes[i]) + size(titleNodes[i]);
+                if (matches == 0) {
+                    return new ArrayList<>();
+                }
+                if (matches < fewest) {
+                    fewest = matches;
+                    selective = i;
+                }
+            }
+
+            // Score candidates from the most selective term, keeping the top N
+            Set<Course> candidates = new HashSet<>(fewest);
+            addPrefixed(candidates, codeNodes[selective]);
+            addPrefixed(candidates, titleNodes[selective]);
+            PriorityQueue<Scored> top = new PriorityQueue<>(limit + 1, Scored.WORST_FIRST);
+            for (Course course : candidates) {
+                int score = 0;
+                for (int i = 0; i < terms.size() && score >= 0; i++) {
+                    int termScore = score(codeNodes[i], titleNodes[i], course);
+                    score = termScore == 0 ? -1 : score + termScore;
+                }
+                if (score > 0) {
+                    top.offer(new Scored(course, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Course> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(top.poll().course());
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void courseAdded(Course course) {
+        lock.writeLock().lock();
+        try {
+            unindex(course);
+            IndexedTokens tokens = new IndexedTokens(tokenizeCode(course.getCode()), tokenize(course.getTitle()));
+            tokens.code().forEach(token -> codeTrie.insert(token, course));
+            tokens.title().forEach(token -> titleTrie.insert(token, course));
+            indexed.put(course, tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        course.addListener(courseListener);
+    }
+
+    @Override
+    public void courseRemoved(Course course) {
+        course.removeListener(courseListener);
+        lock.writeLock().lock();
+        try {
+            unindex(course);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        if (property == Course.Property.TITLE) {
+            courseAdded(course);
+        }
+    }
+
+    /**
+     * Removes a course from both tries. Caller must hold the write lock.
+     */
+    private void unindex(Course course) {
+        IndexedTokens tokens = indexed.remove(course);
+        if (tokens != null) {
+            tokens.code().forEach(token -> codeTrie.remove(token, course));
+            tokens.title().forEach(token -> titleTrie.remove(token, course));
+        }
+    }
+
+    private static int score(Node codeNode, Node titleNode, Course course) {
+        if (codeNode != null && codeNode.exact.contains(course)) {
+            return CODE_EXACT;
+        }
+        if (codeNode != null && codeNode.prefixed.contains(course)) {
+            return CODE_PREFIX;
+        }
+        if (titleNode != null && titleNode.exact.contains(course)) {
+            return TITLE_EXACT;
+        }
+        if (titleNode != null && titleNode.prefixed.contains(course)) {
+            return TITLE_PREFIX;
+        }
+        return 0;
+    }
+
+    private static void addPrefixed(Set<Course> candidates, Node node) {
+        if (node != null) {
+            candidates.addAll(node.prefixed);
+        }
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.prefixed.size() : 0;
+    }
+
+    /**
+     * Lower-cases text and splits it into alphanumeric words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Indexes a course code both whole (separators dropped, so "CS-201" is
+     * found by "cs2") and by its individual words.
+     */
+    private static Set<String> tokenizeCode(String code) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(code));
+        if (tokens.size() > 1) {
+            tokens.add(String.join("", tokens));
+        }
+        return tokens;
+    }
+
+    private record IndexedTokens(Set<String> code, List<String> title) {
+    }
+
+    private record Scored(Course course, int score) {
+        static final Comparator<Scored> WORST_FIRST = Comparator.comparingInt(Scored::score)
+            .thenComparing(scored -> scored.course().getCode(), Comparator.reverseOrder());
+    }
+
+    /**
+     * Trie node. {@code prefixed} holds courses with a token starting with
+     * this node's prefix; {@code exact} those with a token equal to it.
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Set<Course> prefixed = new HashSet<>();
+        private final Set<Course> exact = new HashSet<>();
+
+        Node find(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        void insert(String token, Course course) {
+            Node node = this;
+            for (int i = 0; i < token.length(); i++) {
+                node = node.children.computeIfAbsent(token.charAt(i), c -> new Node());
+                node.prefixed.add(course);
+            }
+            node.exact.add(course);
+        }
+
+        void remove(String token, Course course) {
+            Node node = this;
+            Deque<Node> path = new ArrayDeque<>(token.length());
+            for (int i = 0; i < token.length() && node != null; i++) {
+                node = node.children.get(token.charAt(i));
+                if (node != null) {
+                    node.prefixed.remove(course);
+                    path.push(node);
+                }
+            }
+            if (node == null) {
+                return;
+            }
+            node.exact.remove(course);
+
+            // Prune nodes no longer on any token's path
+            for (int i = token.length() - 1; i >= 0 && !path.isEmpty(); i--) {
+                Node child = path.pop();
+                if (!child.prefixed.isEmpty()) {
+                    break;
+                }
+                Node parent = path.isEmpty() ? this : path.peek();
+                parent.children.remove(token.charAt(i));
+            }
+        }
+    }
+}
@@ -1,24 +1,65 @@
 package edu.ccrm.service.impl;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
 import edu.ccrm.domain.Semester;
+import edu.ccrm.io.Journal;
+import edu.ccrm.io.JournalRecord;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.BulkLoadResult.Reason;
+import edu.ccrm.service.CourseLoad;
+import edu.ccrm.service.CourseRegistryListener;
 import edu.ccrm.service.CourseService;
+import edu.ccrm.service.Page;
+import edu.ccrm.util.SymbolTable;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Default implementation of CourseService.
+ * Keeps secondary indexes by semester, department and instructor so the
+ * filtered lookups cost O(result size). Departments and instructors are
+ * indexed by their dictionary codes rather than by string. The indexes follow changes made
+ * through the course setters as well as through this service. Courses with
+ * no value for an indexed field are left out of that index. Courses are kept
+ * ordered by code so they can be paged and streamed without copying.
  */
 public class DefaultCourseService implements CourseService {
-    private final Map<String, Course> courses = new HashMap<>();
+    private final NavigableMap<String, Course> courses = new TreeMap<>();
+    private final Map<Semester, Set<Course>> bySemester = new EnumMap<>(Semester.class);
+    private final Map<Integer, Set<Course>> byDepartment = new HashMap<>();
+    private final Map<Integer, Set<Course>> byInstructor = new HashMap<>();
+    private final CourseListener courseListener = this::onCourseChanged;
+    private final List<CourseRegistryListener> registryListeners = new ArrayList<>();
+    private final Journal journal;
+
+    public DefaultCourseService() {
+        this(Journal.NONE);
+    }
+
+    /**
+     * Creates a service that records every mutation in the given journal.
+     */
+    public DefaultCourseService(Journal journal) {
+        this.journal = Objects.requireNonNull(journal, "Journal cannot be null");
+    }
 
     @Override
     public Course createCourse(String code, String title, int credits,
                              String instructor, Semester semester, String department) {
+        return createCourse(code, title, credits, instructor, semester, department, 0);
+    }
+
+    @Override
+    public Course createCourse(String code, String title, int credits,
+                             String instructor, Semester semester, String department, int capacity) {
         Objects.requireNonNull(code, "Course code cannot be null");
         Objects.requireNonNull(title, "Title cannot be null");
         Objects.requireNonNull(semester, "Semester cannot be null");
         Objects.requireNonNull(department, "Department cannot be null");
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
 
         if (courses.containsKey(code)) {
             throw new IllegalArgumentException("Course with code " + code + " already exists");
@@ -30,12 +71,72 @@ public class DefaultCourseService implements CourseService {
                 .instructor(instructor)
                 .semester(semester)
                 .department(department)
+                .capacity(capacity)
                 .build();
 
-        courses.put(code, course);
+        register(course);
+        journal.awaitDurable(journal.append(JournalRecord.Type.CREATE_COURSE, courseFields(course)));
         return course;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Every row is checked and built before the first is stored, with
+     * in-batch duplicate codes found by a hash set sized for the batch. All
+     * loaded courses are made durable with a single journal wait.
+     */
+    @Override
+    public BulkLoadResult<Course> loadCourses(List<CourseLoad> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Course> result = new BulkLoadResult<>(batch.size());
+        Set<String> codes = new HashSet<>(BulkLoads.hashCapacity(batch.size()));
+        Course[] built = new Course[batch.size()];
+        for (int row = 0; row < batch.size(); row++) {
+            CourseLoad load = batch.get(row);
+            if (load == null || load.code() == null || load.title() == null
+                    || load.semester() == null || load.department() == null) {
+                result.reject(row, Reason.INVALID_ROW, "Code, title, semester and department are required");
+            } else if (load.capacity() < 0) {
+                result.reject(row, Reason.INVALID_ROW, "Capacity cannot be negative");
+            } else if (codes.contains(load.code())) {
+                result.reject(row, Reason.DUPLICATE_IN_BATCH, "Course code " + load.code() + " repeats an earlier row");
+            } else if (courses.containsKey(load.code())) {
+                result.reject(row, Reason.ALREADY_EXISTS, "Course with code " + load.code() + " already exists");
+            } else {
+                codes.add(load.code());
+                built[row] = new Course.Builder(load.code())
+                        .title(load.title())
+                        .credits(load.credits())
+                        .instructor(load.instructor())
+                        .semester(load.semester())
+                        .department(load.department())
+                        .capacity(load.capacity())
+                        .build();
+            }
+        }
+
+        long lastSequence = 0;
+        for (int row = 0; row < built.length; row++) {
+            Course course = built[row];
+            if (course != null) {
+                register(course);
+                lastSequence = journal.append(JournalRecord.Type.CREATE_COURSE, courseFields(course));
+                result.load(row, course);
+            }
+        }
+        journal.awaitDurable(lastSequence);
+        return result;
+    }
+
+    /**
+     * Inserts a previously persisted course as-is, bypassing validation and
+     * the journal. Used when restoring a snapshot or replaying the journal.
+     */
+    public void restoreCourse(Course course) {
+        register(course);
+    }
+
     @Override
     public Optional<Course> getCourse(String code) {
         return Optional.ofNullable(courses.get(code));
@@ -46,25 +147,32 @@ public class DefaultCourseService implements CourseService {
         return new ArrayList<>(courses.values());
     }
 
+    @Override
+    public Page<Course> getCourses(String pageToken, int pageSize) {
+        return Pages.after(courses, pageToken, pageSize);
+    }
+
+    @Override
+    public Stream<Course> streamCourses() {
+        return courses.values().stream();
+    }
+
     @Override
     public List<Course> getCoursesByDepartment(String department) {
-        return courses.values().stream()
-                .filter(course -> Objects.equals(course.getDepartment(), department))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byDepartment.getOrDefault(Course.departmentCode(department), Collections.emptySet()));
     }
 
     @Override
     public List<Course> getCoursesBySemester(Semester semester) {
-        return courses.values().stream()
-                .filter(course -> course.getSemester() == semester)
-                .collect(Collectors.toList());
+        if (semester == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(bySemester.getOrDefault(semester, Collections.emptySet()));
     }
 
     @Override
     public List<Course> getCoursesByInstructor(String instructorId) {
-        return courses.values().stream()
-                .filter(course -> Objects.equals(course.getInstructor(), instructorId))
-                .collect(Collectors.toList());
+        return new ArrayList<>(byInstructor.getOrDefault(Course.instructorCode(instructorId), Collections.emptySet()));
     }
 
     @Override
@@ -73,11 +181,112 @@ public class DefaultCourseService implements CourseService {
         if (!courses.containsKey(course.getCode())) {
             throw new IllegalArgumentException("Course not found");
         }
-        courses.put(course.getCode(), course);
+        register(course);
+        journal.awaitDurable(journal.append(JournalRecord.Type.UPDATE_COURSE, courseFields(course)));
     }
 
     @Override
     public void deactivateCourse(String code) {
-        courses.remove(code);
+        Course removed = courses.remove(code);
+        if (removed != null) {
+            unindex(removed);
+            removed.removeListener(courseListener);
+            registryListeners.forEach(listener -> listener.courseRemoved(removed));
+            journal.awaitDurable(journal.append(JournalRecord.Type.DEACTIVATE_COURSE, code));
+        }
+    }
+
+    @Override
+    public void addRegistryListener(CourseRegistryListener listener) {
+        Objects.requireNonNull(listener, "Listener cannot be null");
+        registryListeners.add(listener);
+    }
+
+    /**
+     * Stores a course and indexes it, replacing any other instance held under the same code.
+     */
+    private void register(Course course) {
+        Course previous = courses.put(course.getCode(), course);
+        if (previous == course) {
+            return;
+        }
+        if (previous != null) {
+            unindex(previous);
+            previous.removeListener(courseListener);
+            registryListeners.forEach(listener -> listener.courseRemoved(previous));
+        }
+        addTo(bySemester, course.getSemester(), course);
+        addTo(byDepartment, symbol(course.getDepartmentCode()), course);
+        addTo(byInstructor, symbol(course.getInstructorCode()), course);
+        course.addListener(courseListener);
+        registryListeners.forEach(listener -> listener.courseAdded(course));
+    }
+
+    private void unindex(Course course) {
+        removeFrom(bySemester, course.getSemester(), course);
+        removeFrom(byDepartment, symbol(course.getDepartmentCode()), course);
+        removeFrom(byInstructor, symbol(course.getInstructorCode()), course);
+    }
+
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        if (courses.get(course.getCode()) != course) {
+            return;
+        }
+        switch (property) {
+            case SEMESTER -> {
+                removeFrom(bySemester, (Semester) oldValue, course);
+                addTo(bySemester, (Semester) newValue, course);
+            }
+            case DEPARTMENT -> {
+                removeFrom(byDepartment, symbol(Course.departmentCode((String) oldValue)), course);
+                addTo(byDepartment, symbol(Course.departmentCode((String) newValue)), course);
+            }
+            case INSTRUCTOR -> {
+                removeFrom(byInstructor, symbol(Course.instructorCode((String) oldValue)), course);
+                addTo(byInstructor, symbol(Course.instructorCode((String) newValue)), course);
+            }
+            default -> {
+                // Other properties are not indexed
+            }
+        }
+    }
+
+    /**
+     * Boxes a dictionary code as an index key; unset values map to null and are not indexed.
+     */
+    private static Integer symbol(int code) {
+        return code == SymbolTable.NONE ? null : code;
+    }
+
+    private static <K> void addTo(Map<K, Set<Course>> index, K key, Course course) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(course);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Course>> index, K key, Course course) {
+        if (key == null) {
+            return;
+        }
+        Set<Course> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(course);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String[] courseFields(Course course) {
+        return new String[] {
+            course.getCode(),
+            course.getTitle(),
+            String.valueOf(course.getCredits()),
+            course.getInstructor(),
+            course.getSemester().name(),
+            course.getDepartment(),
+            String.valueOf(course.getCapacity())
+        };
     }
 }
\ No newline at end of file
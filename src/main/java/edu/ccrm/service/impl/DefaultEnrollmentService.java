@@ -1,116 +1,475 @@
 package edu.ccrm.service.impl;
 
 import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
 import edu.ccrm.domain.Enrollment;
 import edu.ccrm.domain.Grade;
 import edu.ccrm.domain.Semester;
 import edu.ccrm.domain.Student;
-import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.io.Journal;
+import edu.ccrm.io.JournalRecord;
+import edu.ccrm.service.BulkEnrollmentResult;
+import edu.ccrm.service.BulkEnrollmentResult.Reason;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentListener;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentRequest;
+import edu.ccrm.service.Page;
+import edu.ccrm.service.RestorableEnrollmentService;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.impl.BulkLoads.JoinedEnrollment;
+import edu.ccrm.service.impl.EnrollmentStore.StudentEnrollments;
+import edu.ccrm.util.CourseFullException;
 import edu.ccrm.util.DuplicateEnrollmentException;
 import edu.ccrm.util.MaxCreditLimitExceededException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Default implementation of EnrollmentService.
+ * Thread-safe: every operation on a student runs under that student's own
+ * lock, so the duplicate and credit-limit checks and the insert are atomic,
+ * while operations on different students proceed in parallel.
+ * Course seats are claimed lock-free through a per-course {@link SeatLedger};
+ * students who find a course full join its FIFO waitlist and are promoted
+ * automatically when a seat frees up.
  */
-public class DefaultEnrollmentService implements EnrollmentService {
+public class DefaultEnrollmentService implements RestorableEnrollmentService {
     private static final int MAX_CREDITS_PER_SEMESTER = 21;
-    private final List<Enrollment> enrollments = new ArrayList<>();
+    private final EnrollmentStore enrollments = new EnrollmentStore();
+    private final Map<String, SeatLedger> seatLedgers = new ConcurrentHashMap<>();
+    private final CourseListener courseListener = this::onCourseChanged;
+    private final List<EnrollmentListener> listeners = new CopyOnWriteArrayList<>();
+    private final Journal journal;
+
+    public DefaultEnrollmentService() {
+        this(Journal.NONE);
+    }
+
+    /**
+     * Creates a service that records every mutation in the given journal.
+     * Records are appended under the student's lock, so the journal order
+     * matches the order in which each student's state changed.
+     */
+    public DefaultEnrollmentService(Journal journal) {
+        this.journal = Objects.requireNonNull(journal, "Journal cannot be null");
+    }
 
     @Override
     public Enrollment enrollStudent(Student student, Course course) {
         Objects.requireNonNull(student, "Student cannot be null");
         Objects.requireNonNull(course, "Course cannot be null");
 
-        // Check for duplicate enrollment
-        if (isEnrolled(student, course)) {
-            throw new DuplicateEnrollmentException(
-                "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode());
-        }
+        StudentEnrollments slot = enrollments.slot(student.getRegNo());
+        Enrollment enrollment;
+        long sequence = 0;
+        synchronized (slot) {
+            // Check for duplicate enrollment
+            if (isEnrolled(student, course)) {
+                throw new DuplicateEnrollmentException(duplicateMessage(student, course));
+            }
 
-        // Check credit limit
-        int currentCredits = calculateCurrentCredits(student, course.getSemester());
-        if (currentCredits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
-            throw new MaxCreditLimitExceededException(
-                "Enrolling in " + course.getCode() + " would exceed the maximum credit limit of " 
-                + MAX_CREDITS_PER_SEMESTER);
+            // Check credit limit
+            int currentCredits = slot.creditsFor(course.getSemester());
+            if (currentCredits + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                throw new MaxCreditLimitExceededException(creditLimitMessage(course));
+            }
+
+            SeatLedger ledger = seatLedger(course);
+            if (ledger.tryAcquire(course.getCapacity())) {
+                enrollment = addEnrollment(student, course);
+                sequence = journalEnrollment(enrollment);
+            } else if (ledger.enqueue(student)) {
+                enrollment = null;
+            } else {
+                throw new DuplicateEnrollmentException(
+                    "Student " + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+            }
         }
+        journal.awaitDurable(sequence);
+        course.addListener(courseListener);
 
-        Enrollment enrollment = new Enrollment(student, course);
-        enrollments.add(enrollment);
-        student.addEnrollment(enrollment);
+        if (enrollment != null) {
+            fireChanged(student, course);
+        } else {
+            // A seat may have been released between the failed claim and the enqueue
+            promoteWaitlisted(course);
+            enrollment = enrollments.get(student.getRegNo(), course.getCode());
+            if (enrollment == null) {
+                throw new CourseFullException("Course " + course.getCode() + " is full; student "
+                    + student.getRegNo() + " has been added to the waitlist");
+            }
+        }
         return enrollment;
     }
 
+    @Override
+    public BulkEnrollmentResult enrollAll(List<EnrollmentRequest> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkEnrollmentResult result = new BulkEnrollmentResult();
+
+        // Group row indexes by student, keeping first-seen order
+        Map<String, List<Integer>> rowsByStudent = new LinkedHashMap<>();
+        for (int row = 0; row < batch.size(); row++) {
+            EnrollmentRequest request = batch.get(row);
+            if (request == null || request.student() == null || request.course() == null) {
+                result.reject(row, request, Reason.INVALID_REQUEST, "Student and course are required");
+                continue;
+            }
+            rowsByStudent.computeIfAbsent(request.student().getRegNo(), k -> new ArrayList<>()).add(row);
+        }
+
+        Set<Course> touchedCourses = new HashSet<>();
+        Set<Course> waitlistedCourses = new HashSet<>();
+        long lastSequence = 0;
+        for (Map.Entry<String, List<Integer>> group : rowsByStudent.entrySet()) {
+            StudentEnrollments slot = enrollments.slot(group.getKey());
+            synchronized (slot) {
+                int[] credits = slot.creditsBySemester();
+                for (int row : group.getValue()) {
+                    EnrollmentRequest request = batch.get(row);
+                    Student student = request.student();
+                    Course course = request.course();
+                    int semester = course.getSemester().ordinal();
+
+                    if (isEnrolled(student, course)) {
+                        result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, duplicateMessage(student, course));
+                    } else if (credits[semester] + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                        result.reject(row, request, Reason.MAX_CREDITS_EXCEEDED, creditLimitMessage(course));
+                    } else if (seatLedger(course).tryAcquire(course.getCapacity())) {
+                        Enrollment enrollment = addEnrollment(student, course);
+                        lastSequence = Math.max(lastSequence, journalEnrollment(enrollment));
+                        result.accept(row, enrollment);
+                        credits[semester] += course.getCredits();
+                        fireChanged(student, course);
+                        touchedCourses.add(course);
+                    } else if (seatLedger(course).enqueue(student)) {
+                        result.reject(row, request, Reason.WAITLISTED, "Course " + course.getCode()
+                            + " is full; student " + student.getRegNo() + " has been added to the waitlist");
+                        touchedCourses.add(course);
+                        waitlistedCourses.add(course);
+                    } else {
+                        result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, "Student "
+                            + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+                    }
+                }
+            }
+        }
+        journal.awaitDurable(lastSequence);
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        waitlistedCourses.forEach(this::promoteWaitlisted);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each row is stored, indexed on its student and course, counted
+     * against the course's seats and folded into the student's GPA in one
+     * step under the student's lock. All rows are made durable with a
+     * single journal wait.
+     */
+    @Override
+    public BulkLoadResult<Enrollment> loadEnrollments(List<EnrollmentLoad> batch,
+                                                      StudentService students, CourseService courses) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Enrollment> result = new BulkLoadResult<>(batch.size());
+        List<JoinedEnrollment> joined = BulkLoads.join(batch, students, courses, result);
+
+        Set<Course> touchedCourses = new HashSet<>();
+        long lastSequence = 0;
+        for (JoinedEnrollment row : joined) {
+            Student student = row.student();
+            Course course = row.course();
+            Enrollment enrollment = new Enrollment(student, course, row.enrollmentDate());
+            enrollment.setGrade(row.grade());
+            StudentEnrollments slot = enrollments.slot(student.getRegNo());
+            synchronized (slot) {
+                if (!enrollments.add(enrollment)) {
+                    result.reject(row.row(), BulkLoadResult.Reason.ALREADY_EXISTS,
+                        BulkLoads.alreadyEnrolledMessage(student, course));
+                    continue;
+                }
+                student.addEnrollment(enrollment);
+                slot.gradeAggregate().refresh(enrollment);
+                seatLedger(course).acquire();
+                lastSequence = journalEnrollment(enrollment);
+                if (row.grade() != null) {
+                    lastSequence = journal.append(JournalRecord.Type.RECORD_GRADE,
+                        student.getRegNo(), course.getCode(), row.grade().name());
+                }
+            }
+            result.load(row.row(), enrollment);
+            touchedCourses.add(course);
+        }
+        journal.awaitDurable(lastSequence);
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        result.getLoaded().forEach(loaded -> fireChanged(loaded.item().getStudent(), loaded.item().getCourse()));
+        return result;
+    }
+
     @Override
     public void unenrollStudent(Student student, Course course) {
-        enrollments.removeIf(e -> e.getStudent().equals(student) && e.getCourse().equals(course));
-        student.removeEnrollment(
-            student.getEnrollments().stream()
-                .filter(e -> e.getCourse().equals(course))
-                .findFirst()
-                .orElse(null)
-        );
+        StudentEnrollments slot = enrollments.slot(student.getRegNo());
+        SeatLedger ledger = seatLedger(course);
+        boolean seatReleased = false;
+        long sequence = 0;
+        synchronized (slot) {
+            Enrollment removed = enrollments.remove(student.getRegNo(), course.getCode());
+            if (removed != null) {
+                student.removeEnrollment(removed);
+                slot.gradeAggregate().remove(course.getCode());
+                ledger.release();
+                seatReleased = true;
+                sequence = journal.append(JournalRecord.Type.UNENROLL, student.getRegNo(), course.getCode());
+            } else {
+                ledger.removeFromWaitlist(student);
+            }
+        }
+        journal.awaitDurable(sequence);
+        if (seatReleased) {
+            fireChanged(student, course);
+            promoteWaitlisted(course);
+        }
     }
 
     @Override
     public void recordGrade(Student student, Course course, Grade grade) {
         Objects.requireNonNull(grade, "Grade cannot be null");
-        
-        enrollments.stream()
-            .filter(e -> e.getStudent().equals(student) && e.getCourse().equals(course))
-            .findFirst()
-            .ifPresent(enrollment -> enrollment.setGrade(grade));
+
+        StudentEnrollments slot = enrollments.slot(student.getRegNo());
+        Enrollment enrollment;
+        long sequence = 0;
+        synchronized (slot) {
+            enrollment = enrollments.get(student.getRegNo(), course.getCode());
+            if (enrollment != null) {
+                enrollment.setGrade(grade);
+                slot.gradeAggregate().refresh(enrollment);
+                sequence = journal.append(JournalRecord.Type.RECORD_GRADE,
+                    student.getRegNo(), course.getCode(), grade.name());
+            }
+        }
+        journal.awaitDurable(sequence);
+        if (enrollment != null) {
+            fireChanged(student, course);
+        }
     }
 
     @Override
     public List<Enrollment> getEnrollmentsForStudent(Student student) {
-        return enrollments.stream()
-            .filter(e -> e.getStudent().equals(student))
-            .collect(Collectors.toList());
+        return enrollments.forStudent(student.getRegNo());
     }
 
     @Override
     public List<Enrollment> getEnrollmentsForCourse(Course course) {
-        return enrollments.stream()
-            .filter(e -> e.getCourse().equals(course))
-            .collect(Collectors.toList());
+        return new ArrayList<>(enrollments.forCourse(course.getCode()));
+    }
+
+    @Override
+    public Page<Enrollment> getEnrollmentsForCourse(Course course, String pageToken, int pageSize) {
+        return Pages.after(enrollments.roster(course.getCode()), pageToken, pageSize);
+    }
+
+    @Override
+    public Stream<Enrollment> streamEnrollmentsForCourse(Course course) {
+        return enrollments.forCourse(course.getCode()).stream();
+    }
+
+    @Override
+    public void restoreEnrollment(Enrollment enrollment) {
+        Student student = enrollment.getStudent();
+        Course course = enrollment.getCourse();
+        StudentEnrollments slot = enrollments.slot(student.getRegNo());
+        synchronized (slot) {
+            if (!enrollments.add(enrollment)) {
+                return;
+            }
+            student.addEnrollment(enrollment);
+            slot.gradeAggregate().refresh(enrollment);
+            seatLedger(course).acquire();
+        }
+        course.addListener(courseListener);
+        fireChanged(student, course);
+    }
+
+    /**
+     * Visits every enrollment without copying the store. The iteration is
+     * weakly consistent with concurrent updates.
+     */
+    @Override
+    public void forEachEnrollment(Consumer<Enrollment> action) {
+        enrollments.all().forEach(action);
+    }
+
+    @Override
+    public List<Student> getWaitlist(Course course) {
+        SeatLedger ledger = seatLedgers.get(course.getCode());
+        return ledger != null ? ledger.waitlist() : new ArrayList<>();
+    }
+
+    @Override
+    public void addEnrollmentListener(EnrollmentListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
     }
 
     @Override
     public double calculateGPA(Student student) {
-        List<Enrollment> studentEnrollments = getEnrollmentsForStudent(student);
-        
-        if (studentEnrollments.isEmpty()) {
+        StudentEnrollments slot = enrollments.findSlot(student.getRegNo());
+        if (slot == null) {
+            return 0.0;
+        }
+        synchronized (slot) {
+            return slot.gradeAggregate().gpa();
+        }
+    }
+
+    @Override
+    public double calculateGPA(Student student, Semester semester) {
+        StudentEnrollments slot = enrollments.findSlot(student.getRegNo());
+        if (slot == null) {
             return 0.0;
         }
+        synchronized (slot) {
+            return slot.gradeAggregate().gpa(semester);
+        }
+    }
+
+    /**
+     * Recomputes every student's grade aggregates from their enrollments and
+     * compares them with the incrementally maintained values.
+     *
+     * @return one description per student whose aggregates have drifted; empty if consistent
+     */
+    public List<String> checkGradeAggregates() {
+        List<String> drift = new ArrayList<>();
 
-        double totalPoints = 0.0;
-        int totalCredits = 0;
+        for (String regNo : enrollments.studentKeys()) {
+            StudentEnrollments slot = enrollments.slot(regNo);
+            synchronized (slot) {
+                GradeAggregate expected = new GradeAggregate();
+                slot.enrollments().forEach(expected::refresh);
+                GradeAggregate actual = slot.gradeAggregate();
 
-        for (Enrollment enrollment : studentEnrollments) {
-            Grade grade = enrollment.getGrade();
-            if (grade != null) {
-                int credits = enrollment.getCourse().getCredits();
-                totalPoints += grade.getGradePoints() * credits;
-                totalCredits += credits;
+                if (expected.totalPoints() != actual.totalPoints()
+                        || expected.totalCredits() != actual.totalCredits()) {
+                    drift.add(describeDrift(regNo, "overall", expected.totalPoints(), expected.totalCredits(),
+                        actual.totalPoints(), actual.totalCredits()));
+                }
+                for (Semester semester : Semester.values()) {
+                    if (expected.totalPoints(semester) != actual.totalPoints(semester)
+                            || expected.totalCredits(semester) != actual.totalCredits(semester)) {
+                        drift.add(describeDrift(regNo, semester.name(),
+                            expected.totalPoints(semester), expected.totalCredits(semester),
+                            actual.totalPoints(semester), actual.totalCredits(semester)));
+                    }
+                }
             }
         }
+        return drift;
+    }
 
-        return totalCredits > 0 ? totalPoints / totalCredits : 0.0;
+    private static String describeDrift(String regNo, String scope, long expectedPoints,
+                                        int expectedCredits, long actualPoints, int actualCredits) {
+        return String.format("Student %s (%s): expected %.2f points over %d credits, found %.2f over %d",
+            regNo, scope, expectedPoints / 100.0, expectedCredits, actualPoints / 100.0, actualCredits);
     }
 
-    private boolean isEnrolled(Student student, Course course) {
-        return enrollments.stream()
-            .anyMatch(e -> e.getStudent().equals(student) && e.getCourse().equals(course));
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        if (property == Course.Property.CAPACITY) {
+            promoteWaitlisted(course);
+            return;
+        }
+        if (property != Course.Property.CREDITS && property != Course.Property.SEMESTER) {
+            return;
+        }
+        for (Enrollment enrollment : enrollments.forCourse(course.getCode())) {
+            StudentEnrollments slot = enrollments.slot(enrollment.getStudent().getRegNo());
+            synchronized (slot) {
+                // Skip enrollments removed since the course index was read
+                if (enrollments.get(enrollment.getStudent().getRegNo(), course.getCode()) == enrollment) {
+                    slot.gradeAggregate().refresh(enrollment);
+                }
+            }
+        }
     }
 
-    private int calculateCurrentCredits(Student student, Semester semester) {
-        return enrollments.stream()
-            .filter(e -> e.getStudent().equals(student) && 
-                        e.getCourse().getSemester() == semester)
-            .mapToInt(e -> e.getCourse().getCredits())
-            .sum();
+    /**
+     * Moves waitlisted students into free seats in FIFO order. Students who
+     * can no longer take the course (already enrolled, or over the credit
+     * limit) are dropped from the waitlist. Must be called without holding
+     * any student's slot.
+     */
+    private void promoteWaitlisted(Course course) {
+        SeatLedger ledger = seatLedgers.get(course.getCode());
+        if (ledger == null) {
+            return;
+        }
+        long lastSequence = 0;
+        while (ledger.hasWaitlist() && ledger.hasFreeSeat(course.getCapacity())) {
+            Student next = ledger.poll();
+            if (next == null) {
+                break;
+            }
+            StudentEnrollments slot = enrollments.slot(next.getRegNo());
+            synchronized (slot) {
+                if (isEnrolled(next, course)
+                        || slot.creditsFor(course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                    continue;
+                }
+                if (ledger.tryAcquire(course.getCapacity())) {
+                    lastSequence = journalEnrollment(addEnrollment(next, course));
+                    fireChanged(next, course);
+                } else {
+                    // Lost the seat to a concurrent registration; keep the student's place
+                    ledger.requeue(next);
+                    break;
+                }
+            }
+        }
+        journal.awaitDurable(lastSequence);
+    }
+
+    private void fireChanged(Student student, Course course) {
+        listeners.forEach(listener -> listener.enrollmentChanged(student, course));
+    }
+
+    private SeatLedger seatLedger(Course course) {
+        SeatLedger ledger = seatLedgers.get(course.getCode());
+        return ledger != null ? ledger : seatLedgers.computeIfAbsent(course.getCode(), k -> new SeatLedger());
+    }
+
+    /**
+     * Inserts a validated enrollment. Caller must hold the student's slot.
+     */
+    private Enrollment addEnrollment(Student student, Course course) {
+        Enrollment enrollment = new Enrollment(student, course);
+        enrollments.add(enrollment);
+        student.addEnrollment(enrollment);
+        return enrollment;
+    }
+
+    /**
+     * Appends an ENROLL record. Caller must hold the student's slot.
+     */
+    private long journalEnrollment(Enrollment enrollment) {
+        return journal.append(JournalRecord.Type.ENROLL, enrollment.getStudent().getRegNo(),
+            enrollment.getCourse().getCode(), enrollment.getEnrollmentDate().toString());
+    }
+
+    private static String duplicateMessage(Student student, Course course) {
+        return "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode();
+    }
+
+    private static String creditLimitMessage(Course course) {
+        return "Enrolling in " + course.getCode() + " would exceed the maximum credit limit of "
+            + MAX_CREDITS_PER_SEMESTER;
+    }
+
+    private boolean isEnrolled(Student student, Course course) {
+        return enrollments.contains(student.getRegNo(), course.getCode());
     }
-}
\ No newline at end of file
+}
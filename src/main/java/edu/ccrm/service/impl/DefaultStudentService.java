@@ -1,15 +1,74 @@
 package edu.ccrm.service.impl;
 
+import edu.ccrm.domain.Person;
+import edu.ccrm.domain.PersonListener;
 import edu.ccrm.domain.Student;
+import edu.ccrm.io.Journal;
+import edu.ccrm.io.JournalRecord;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.BulkLoadResult.Reason;
+import edu.ccrm.service.Page;
+import edu.ccrm.service.StudentLoad;
 import edu.ccrm.service.StudentService;
+import edu.ccrm.util.IdGenerator;
+import edu.ccrm.util.SnowflakeIdGenerator;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Default implementation of StudentService.
+ * Students are kept ordered by registration number so they can be paged and
+ * streamed without copying the whole collection.
+ *
+ * <p>The registry is safe for concurrent use and readers never block
+ * writers. Secondary indexes are maintained by this service and by the
+ * {@link Student} setters:
+ * <ul>
+ *   <li>active students, with a running count, so listing them costs
+ *       O(active) and counting them O(1);</li>
+ *   <li>lower-cased email, unique at {@link #createStudent} time; an email
+ *       later changed to one already taken is indexed to both students, and
+ *       {@link #findByEmail} returns the one that held it first;</li>
+ *   <li>lower-cased full name from the start of each word, so "smi" finds
+ *       "John Smith" with a single ordered-map seek.</li>
+ * </ul>
  */
 public class DefaultStudentService implements StudentService {
-    private final Map<String, Student> students = new HashMap<>();
+    private static final char NAME_KEY_SEPARATOR = '\u0000';
+    private static final char NAME_KEY_UPPER_BOUND = '\uffff';
+
+    private final ConcurrentNavigableMap<String, Student> students = new ConcurrentSkipListMap<>();
+    private final ConcurrentNavigableMap<String, Student> activeStudents = new ConcurrentSkipListMap<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final Map<String, List<Student>> byEmail = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, Student> byName = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexedKeys> indexedKeys = new ConcurrentHashMap<>();
+    private final PersonListener studentListener = this::onStudentChanged;
+    private final Journal journal;
+    private final IdGenerator idGenerator;
+
+    public DefaultStudentService() {
+        this(Journal.NONE);
+    }
+
+    /**
+     * Creates a service that records every mutation in the given journal.
+     */
+    public DefaultStudentService(Journal journal) {
+        this(journal, new SnowflakeIdGenerator());
+    }
+
+    /**
+     * Creates a service that journals mutations and assigns IDs from the given generator.
+     */
+    public DefaultStudentService(Journal journal, IdGenerator idGenerator) {
+        this.journal = Objects.requireNonNull(journal, "Journal cannot be null");
+        this.idGenerator = Objects.requireNonNull(idGenerator, "ID generator cannot be null");
+    }
 
     @Override
     public Student createStudent(String regNo, String fullName, String email) {
@@ -17,30 +76,149 @@ public class DefaultStudentService implements StudentService {
         Objects.requireNonNull(fullName, "Full name cannot be null");
         Objects.requireNonNull(email, "Email cannot be null");
 
-        if (students.containsKey(regNo)) {
+        Student student = new Student(idGenerator.nextId(), regNo, fullName, email);
+        String emailKey = emailKey(email);
+        if (byEmail.putIfAbsent(emailKey, List.of(student)) != null) {
+            throw new IllegalArgumentException("Student with email " + email + " already exists");
+        }
+        if (students.putIfAbsent(regNo, student) != null) {
+            removeEmailHolder(emailKey, student);
             throw new IllegalArgumentException("Student with registration number " + regNo + " already exists");
         }
-
-        Student student = new Student(UUID.randomUUID().toString(), regNo, fullName, email);
-        students.put(regNo, student);
+        track(student);
+        journal.awaitDurable(journal.append(JournalRecord.Type.CREATE_STUDENT,
+            regNo, fullName, email, student.getId()));
         return student;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Keys of the rows loaded so far are kept in hash sets sized for the
+     * batch, to tell in-batch duplicates from clashes with existing
+     * students, which surface as the rows are stored. All
+     * loaded students are made durable with a single journal wait. The
+     * ordered stores are skip lists, so there is nothing to presize.
+     */
+    @Override
+    public BulkLoadResult<Student> loadStudents(List<StudentLoad> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Student> result = new BulkLoadResult<>(batch.size());
+        int capacity = BulkLoads.hashCapacity(batch.size());
+        Set<String> regNos = new HashSet<>(capacity);
+        Set<String> emailKeys = new HashSet<>(capacity);
+        long lastSequence = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            StudentLoad load = batch.get(row);
+            if (load == null || load.regNo() == null || load.fullName() == null || load.email() == null) {
+                result.reject(row, Reason.INVALID_ROW, "Registration number, full name and email are required");
+                continue;
+            }
+            String emailKey = emailKey(load.email());
+            if (regNos.contains(load.regNo())) {
+                result.reject(row, Reason.DUPLICATE_IN_BATCH,
+                    "Registration number " + load.regNo() + " repeats an earlier row");
+                continue;
+            }
+            if (emailKeys.contains(emailKey)) {
+                result.reject(row, Reason.DUPLICATE_IN_BATCH, "Email " + load.email() + " repeats an earlier row");
+                continue;
+            }
+            Student student = new Student(idGenerator.nextId(), load.regNo(), load.fullName(), load.email());
+            student.setActive(load.active());
+            if (byEmail.putIfAbsent(emailKey, List.of(student)) != null) {
+                result.reject(row, Reason.ALREADY_EXISTS, "Student with email " + load.email() + " already exists");
+                continue;
+            }
+            if (students.putIfAbsent(load.regNo(), student) != null) {
+                removeEmailHolder(emailKey, student);
+                result.reject(row, Reason.ALREADY_EXISTS,
+                    "Student with registration number " + load.regNo() + " already exists");
+                continue;
+            }
+            regNos.add(load.regNo());
+            emailKeys.add(emailKey);
+            track(student);
+            lastSequence = journal.append(JournalRecord.Type.CREATE_STUDENT,
+                load.regNo(), load.fullName(), load.email(), student.getId());
+            if (!load.active()) {
+                lastSequence = journal.append(JournalRecord.Type.DEACTIVATE_STUDENT, load.regNo());
+            }
+            result.load(row, student);
+        }
+        journal.awaitDurable(lastSequence);
+        return result;
+    }
+
+    /**
+     * Inserts a previously persisted student as-is, bypassing validation and
+     * the journal. Used when restoring a snapshot or replaying the journal.
+     */
+    public void restoreStudent(Student student) {
+        register(student);
+    }
+
+    /**
+     * Returns the generator used for new student IDs, e.g. to re-key records
+     * restored from a format that predates numeric IDs.
+     */
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
     @Override
     public Optional<Student> getStudent(String regNo) {
         return Optional.ofNullable(students.get(regNo));
     }
 
+    @Override
+    public Optional<Student> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        List<Student> holders = byEmail.get(emailKey(email));
+        return holders != null ? Optional.of(holders.get(0)) : Optional.empty();
+    }
+
+    @Override
+    public List<Student> searchByName(String prefix, int limit) {
+        String key = nameKey(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        Set<Student> matches = new LinkedHashSet<>();
+        for (Student student : byName.subMap(key, key + NAME_KEY_UPPER_BOUND).values()) {
+            matches.add(student);
+            if (matches.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
     @Override
     public List<Student> getAllStudents() {
         return new ArrayList<>(students.values());
     }
 
+    @Override
+    public Page<Student> getStudents(String pageToken, int pageSize) {
+        return Pages.after(students, pageToken, pageSize);
+    }
+
+    @Override
+    public Stream<Student> streamStudents() {
+        return students.values().stream();
+    }
+
     @Override
     public List<Student> getActiveStudents() {
-        return students.values().stream()
-                .filter(Student::isActive)
-                .collect(Collectors.toList());
+        return new ArrayList<>(activeStudents.values());
+    }
+
+    @Override
+    public int getActiveStudentCount() {
+        return activeCount.get();
     }
 
     @Override
@@ -49,7 +227,9 @@ public class DefaultStudentService implements StudentService {
         if (!students.containsKey(student.getRegNo())) {
             throw new IllegalArgumentException("Student not found");
         }
-        students.put(student.getRegNo(), student);
+        register(student);
+        journal.awaitDurable(journal.append(JournalRecord.Type.UPDATE_STUDENT, student.getRegNo(),
+            student.getFullName(), student.getEmail(), String.valueOf(student.isActive())));
     }
 
     @Override
@@ -57,7 +237,163 @@ public class DefaultStudentService implements StudentService {
         Student student = students.get(regNo);
         if (student != null) {
             student.setActive(false);
-            updateStudent(student);
+            journal.awaitDurable(journal.append(JournalRecord.Type.DEACTIVATE_STUDENT, regNo));
+        }
+    }
+
+    /**
+     * Stores a student, replacing any other instance held under the same registration number.
+     */
+    private void register(Student student) {
+        Student previous = students.put(student.getRegNo(), student);
+        if (previous == student) {
+            return;
+        }
+        if (previous != null) {
+            previous.removeListener(studentListener);
+            synchronized (previous) {
+                IndexedKeys keys = indexedKeys.remove(previous.getRegNo());
+                if (keys != null) {
+                    reindex(previous, keys, IndexedKeys.NONE);
+                }
+            }
+        }
+        track(student);
+    }
+
+    private void track(Student student) {
+        student.addListener(studentListener);
+        refreshIndexes(student);
+    }
+
+    private void onStudentChanged(Person person, Person.Property property, Object oldValue, Object newValue) {
+        if (person instanceof Student student) {
+            refreshIndexes(student);
+        }
+    }
+
+    /**
+     * Brings the secondary indexes in line with the student's current state.
+     * The state is re-read under the student's monitor rather than taken
+     * from the change event, so racing setter calls settle on the final values.
+     */
+    private void refreshIndexes(Student student) {
+        synchronized (student) {
+            if (students.get(student.getRegNo()) != student) {
+                return;
+            }
+            IndexedKeys current = IndexedKeys.of(student);
+            IndexedKeys previous = indexedKeys.put(student.getRegNo(), current);
+            reindex(student, previous != null ? previous : IndexedKeys.NONE, current);
+        }
+    }
+
+    /**
+     * Moves a student's index entries from one set of keys to another.
+     * Caller must hold the student's monitor.
+     */
+    private void reindex(Student student, IndexedKeys from, IndexedKeys to) {
+        if (from.active() != to.active()) {
+            if (to.active()) {
+                if (activeStudents.putIfAbsent(student.getRegNo(), student) == null) {
+                    activeCount.incrementAndGet();
+                }
+            } else if (activeStudents.remove(student.getRegNo(), student)) {
+                activeCount.decrementAndGet();
+            }
+        }
+        if (!Objects.equals(from.email(), to.email())) {
+            if (from.email() != null) {
+                removeEmailHolder(from.email(), student);
+            }
+            if (to.email() != null) {
+                addEmailHolder(to.email(), student);
+            }
+        }
+        if (!from.names().equals(to.names())) {
+            from.names().forEach(key -> byName.remove(key, student));
+            to.names().forEach(key -> byName.put(key, student));
+        }
+    }
+
+    /**
+     * Adds a student to the holders of an email key, after any earlier ones.
+     * Each key's list is replaced rather than changed, so readers need no lock.
+     */
+    private void addEmailHolder(String emailKey, Student student) {
+        byEmail.merge(emailKey, List.of(student), (holders, added) -> {
+            if (indexOf(holders, student) >= 0) {
+                return holders;
+            }
+            List<Student> updated = new ArrayList<>(holders.size() + 1);
+            updated.addAll(holders);
+            updated.add(student);
+            return Collections.unmodifiableList(updated);
+        });
+    }
+
+    /**
+     * Removes a student from the holders of an email key, dropping the key
+     * when no holder is left.
+     */
+    private void removeEmailHolder(String emailKey, Student student) {
+        byEmail.computeIfPresent(emailKey, (key, holders) -> {
+            int index = indexOf(holders, student);
+            if (index < 0) {
+                return holders;
+            }
+            if (holders.size() == 1) {
+                return null;
+            }
+            List<Student> updated = new ArrayList<>(holders);
+            updated.remove(index);
+            return Collections.unmodifiableList(updated);
+        });
+    }
+
+    private static int indexOf(List<Student> holders, Student student) {
+        for (int i = 0; i < holders.size(); i++) {
+            if (holders.get(i) == student) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower-cases a name and collapses runs of whitespace to single spaces.
+     */
+    private static String nameKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        return String.join(" ", name.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+    }
+
+    /**
+     * The index keys last recorded for a student. Name keys are the
+     * normalized name from the start of each word, suffixed with the
+     * registration number so students sharing a name get distinct keys.
+     */
+    private record IndexedKeys(boolean active, String email, List<String> names) {
+        static final IndexedKeys NONE = new IndexedKeys(false, null, List.of());
+
+        static IndexedKeys of(Student student) {
+            List<String> names = new ArrayList<>();
+            String name = nameKey(student.getFullName());
+            String suffix = NAME_KEY_SEPARATOR + student.getRegNo();
+            if (!name.isEmpty()) {
+                names.add(name + suffix);
+                for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+                    names.add(name.substring(i + 1) + suffix);
+                }
+            }
+            String email = student.getEmail() != null ? emailKey(student.getEmail()) : null;
+            return new IndexedKeys(student.isActive(), email, names);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,40 @@
 package edu.ccrm.service.impl;
 
+import edu.ccrm.domain.Course;
 import edu.ccrm.domain.Enrollment;
 import edu.ccrm.domain.Student;
+import edu.ccrm.io.PdfTextWriter;
 import edu.ccrm.service.EnrollmentService;
 import edu.ccrm.service.TranscriptService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Default implementation of TranscriptService.
+ *
+ * <p>Transcripts are written straight to the target. Numbers are formatted
+ * by hand with the digits and decimal separator of the default format
+ * locale, reproducing {@code %d} and {@code %.2f} (half-up rounding) of
+ * {@link String#format} without parsing a format string per line. PDF
+ * transcripts carry the same text, laid out by {@link PdfTextWriter}.
  */
 public class DefaultTranscriptService implements TranscriptService {
+    private static final Comparator<Enrollment> BY_SEMESTER_AND_CODE = Comparator
+        .comparing((Enrollment enrollment) -> enrollment.getCourse().getSemester())
+        .thenComparing(enrollment -> enrollment.getCourse().getCode());
+
+    private static volatile NumberSymbols numberSymbols = NumberSymbols.of(Locale.ROOT);
+
     private final EnrollmentService enrollmentService;
 
     public DefaultTranscriptService(EnrollmentService enrollmentService) {
@@ -18,49 +43,144 @@ public class DefaultTranscriptService implements TranscriptService {
 
     @Override
     public String generateTranscript(Student student) {
-        StringBuilder transcript = new StringBuilder();
-        List<Enrollment> enrollments = enrollmentService.getEnrollmentsForStudent(student);
+        StringBuilder transcript = new StringBuilder(512);
+        try {
+            writeTranscript(student, transcript);
+        } catch (IOException e) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return transcript.toString();
+    }
+
+    @Override
+    public void writeTranscript(Student student, Appendable out) throws IOException {
+        List<Enrollment> enrollments = new ArrayList<>(enrollmentService.getEnrollmentsForStudent(student));
         double gpa = enrollmentService.calculateGPA(student);
+        NumberSymbols symbols = NumberSymbols.current();
 
-        transcript.append("ACADEMIC TRANSCRIPT\n");
-        transcript.append("==================\n\n");
-        transcript.append(String.format("Student: %s (%s)\n", student.getFullName(), student.getRegNo()));
-        transcript.append("------------------\n\n");
+        out.append("ACADEMIC TRANSCRIPT\n");
+        out.append("==================\n\n");
+        out.append("Student: ").append(student.getFullName())
+            .append(" (").append(student.getRegNo()).append(")\n");
+        out.append("------------------\n\n");
 
         // Group by semester and sort
-        enrollments.stream()
-            .sorted((e1, e2) -> {
-                int semesterCompare = e1.getCourse().getSemester()
-                    .compareTo(e2.getCourse().getSemester());
-                if (semesterCompare == 0) {
-                    return e1.getCourse().getCode().compareTo(e2.getCourse().getCode());
-                }
-                return semesterCompare;
-            })
-            .forEach(enrollment -> {
-                transcript.append(String.format("%s: %s\n",
-                    enrollment.getCourse().getCode(),
-                    enrollment.getCourse().getTitle()));
-                transcript.append(String.format("Credits: %d  Grade: %s\n",
-                    enrollment.getCourse().getCredits(),
-                    enrollment.getGrade() != null ? enrollment.getGrade() : "Not Graded"));
-                transcript.append("\n");
-            });
-
-        transcript.append("------------------\n");
-        transcript.append(String.format("Cumulative GPA: %.2f\n", gpa));
+        enrollments.sort(BY_SEMESTER_AND_CODE);
+        for (Enrollment enrollment : enrollments) {
+            Course course = enrollment.getCourse();
+            out.append(course.getCode()).append(": ").append(course.getTitle()).append('\n');
+            out.append("Credits: ");
+            appendInteger(out, course.getCredits(), symbols);
+            out.append("  Grade: ")
+                .append(enrollment.getGrade() != null ? enrollment.getGrade().toString() : "Not Graded")
+                .append('\n');
+            out.append('\n');
+        }
 
-        return transcript.toString();
+        out.append("------------------\n");
+        out.append("Cumulative GPA: ");
+        appendTwoDecimals(out, gpa, symbols);
+        out.append('\n');
+    }
+
+    @Override
+    public void writeTranscript(Student student, OutputStream out, Charset charset) throws IOException {
+        ByteAppender appender = new ByteAppender(out, charset);
+        writeTranscript(student, appender);
+        appender.flush();
     }
 
     @Override
     public void printTranscript(Student student) {
-        System.out.println(generateTranscript(student));
+        try {
+            writeTranscript(student, System.out);
+        } catch (IOException e) {
+            // PrintStream records errors instead of throwing
+            throw new UncheckedIOException(e);
+        }
+        System.out.println();
     }
 
     @Override
     public byte[] generateTranscriptPDF(Student student) {
-        // TODO: Implement PDF generation in future version
-        throw new UnsupportedOperationException("PDF generation not yet implemented");
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(4096);
+        try {
+            writeTranscriptPDF(student, pdf);
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws
+            throw new UncheckedIOException(e);
+        }
+        return pdf.toByteArray();
+    }
+
+    @Override
+    public void writeTranscriptPDF(Student student, OutputStream out) throws IOException {
+        PdfTextWriter pdf = new PdfTextWriter(out, "Transcript of " + student.getFullName());
+        writeTranscript(student, pdf);
+        pdf.finish();
+    }
+
+    /**
+     * Appends an integer as {@code %d} would, in the locale's digits.
+     */
+    private static void appendInteger(Appendable out, long value, NumberSymbols symbols) throws IOException {
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        char zero = symbols.zeroDigit();
+        char[] digits = new char[20];
+        int start = digits.length;
+        do {
+            digits[--start] = (char) (zero + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start; i < digits.length; i++) {
+            out.append(digits[i]);
+        }
+    }
+
+    /**
+     * Appends a double as {@code %.2f} would. Like {@link java.util.Formatter},
+     * rounds the shortest decimal representation of the value half-up.
+     */
+    private static void appendTwoDecimals(Appendable out, double value, NumberSymbols symbols)
+            throws IOException {
+        if (!Double.isFinite(value)) {
+            out.append(String.format("%.2f", value));
+            return;
+        }
+        long hundredths = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        if (hundredths < 0 || (hundredths == 0 && Math.copySign(1.0, value) < 0)) {
+            out.append('-');
+            hundredths = Math.abs(hundredths);
+        }
+        char zero = symbols.zeroDigit();
+        appendInteger(out, hundredths / 100, symbols);
+        out.append(symbols.decimalSeparator());
+        out.append((char) (zero + hundredths / 10 % 10));
+        out.append((char) (zero + hundredths % 10));
+    }
+
+    /**
+     * The digits and decimal separator of a format locale, cached because
+     * looking them up allocates.
+     */
+    private record NumberSymbols(Locale locale, char zeroDigit, char decimalSeparator) {
+        static NumberSymbols current() {
+            Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+            NumberSymbols symbols = numberSymbols;
+            if (!symbols.locale().equals(locale)) {
+                symbols = of(locale);
+                numberSymbols = symbols;
+            }
+            return symbols;
+        }
+
+        static NumberSymbols of(Locale locale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            return new NumberSymbols(locale, symbols.getZeroDigit(), symbols.getDecimalSeparator());
+        }
     }
-}
\ No newline at end of file
+}
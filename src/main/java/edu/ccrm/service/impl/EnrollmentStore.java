@@ -0,0 +1,172 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Semester;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory enrollment store with maintained lookup indexes.
+ * Every enrollment is reachable by its (regNo, courseCode) key, by student
+ * and by course, so lookups never scan the full set of enrollments. A
+ * course's enrollments are kept ordered by registration number for paging.
+ *
+ * <p>The store is safe for concurrent use. Each student owns a
+ * {@link StudentEnrollments} slot whose monitor guards that student's
+ * enrollments and grade aggregate; {@link #add} and {@link #remove} must be
+ * called while holding it. Operations on different students never share a lock.
+ */
+class EnrollmentStore {
+    private final Map<EnrollmentKey, Enrollment> byKey = new ConcurrentHashMap<>();
+    private final Map<String, StudentEnrollments> byStudent = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentNavigableMap<String, Enrollment>> byCourse = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the slot for a student, creating it on first use. Slots are
+     * never discarded, so a monitor obtained here stays valid.
+     */
+    StudentEnrollments slot(String regNo) {
+        return byStudent.computeIfAbsent(regNo, k -> new StudentEnrollments());
+    }
+
+    /**
+     * Returns the slot for a student, or null if the student never enrolled.
+     */
+    StudentEnrollments findSlot(String regNo) {
+        return byStudent.get(regNo);
+    }
+
+    /**
+     * Adds an enrollment to all indexes. Caller must hold the student's slot.
+     *
+     * @return false if an enrollment with the same key is already stored
+     */
+    boolean add(Enrollment enrollment) {
+        EnrollmentKey key = EnrollmentKey.of(enrollment);
+        if (byKey.putIfAbsent(key, enrollment) != null) {
+            return false;
+        }
+        slot(key.regNo()).enrollments.add(enrollment);
+        byCourse.computeIfAbsent(key.courseCode(), k -> new ConcurrentSkipListMap<>()).put(key.regNo(), enrollment);
+        return true;
+    }
+
+    /**
+     * Removes an enrollment from all indexes. Caller must hold the student's slot.
+     *
+     * @return the removed enrollment, or null if none was stored under the key
+     */
+    Enrollment remove(String regNo, String courseCode) {
+        Enrollment enrollment = byKey.remove(new EnrollmentKey(regNo, courseCode));
+        if (enrollment != null) {
+            slot(regNo).enrollments.remove(enrollment);
+            Map<String, Enrollment> roster = byCourse.get(courseCode);
+            if (roster != null) {
+                roster.remove(regNo, enrollment);
+            }
+        }
+        return enrollment;
+    }
+
+    Enrollment get(String regNo, String courseCode) {
+        return byKey.get(new EnrollmentKey(regNo, courseCode));
+    }
+
+    boolean contains(String regNo, String courseCode) {
+        return byKey.containsKey(new EnrollmentKey(regNo, courseCode));
+    }
+
+    /**
+     * Returns a snapshot of a student's enrollments in enrollment order.
+     */
+    List<Enrollment> forStudent(String regNo) {
+        StudentEnrollments slot = byStudent.get(regNo);
+        if (slot == null) {
+            return new ArrayList<>();
+        }
+        synchronized (slot) {
+            return new ArrayList<>(slot.enrollments);
+        }
+    }
+
+    /**
+     * Returns a weakly consistent view of a course's enrollments in registration number order.
+     */
+    Collection<Enrollment> forCourse(String courseCode) {
+        return roster(courseCode).values();
+    }
+
+    /**
+     * Returns a weakly consistent view of a course's enrollments keyed by registration number.
+     */
+    NavigableMap<String, Enrollment> roster(String courseCode) {
+        NavigableMap<String, Enrollment> roster = byCourse.get(courseCode);
+        return roster != null ? roster : Collections.emptyNavigableMap();
+    }
+
+    Collection<Enrollment> all() {
+        return Collections.unmodifiableCollection(byKey.values());
+    }
+
+    Set<String> studentKeys() {
+        return Collections.unmodifiableSet(byStudent.keySet());
+    }
+
+    int size() {
+        return byKey.size();
+    }
+
+    /**
+     * Per-student state. All fields are guarded by the instance monitor.
+     */
+    static final class StudentEnrollments {
+        private final Set<Enrollment> enrollments = new LinkedHashSet<>();
+        private final GradeAggregate gradeAggregate = new GradeAggregate();
+
+        Collection<Enrollment> enrollments() {
+            return enrollments;
+        }
+
+        GradeAggregate gradeAggregate() {
+            return gradeAggregate;
+        }
+
+        /**
+         * Sums the credits held in the given semester in O(k).
+         */
+        int creditsFor(Semester semester) {
+            int credits = 0;
+            for (Enrollment enrollment : enrollments) {
+                if (enrollment.getCourse().getSemester() == semester) {
+                    credits += enrollment.getCourse().getCredits();
+                }
+            }
+            return credits;
+        }
+
+        /**
+         * Sums the credits held in every semester in a single O(k) pass.
+         *
+         * @return credits indexed by {@link Semester#ordinal()}
+         */
+        int[] creditsBySemester() {
+            int[] credits = new int[Semester.values().length];
+            for (Enrollment enrollment : enrollments) {
+                credits[enrollment.getCourse().getSemester().ordinal()] += enrollment.getCourse().getCredits();
+            }
+            return credits;
+        }
+    }
+
+    /**
+     * Composite key identifying one enrollment.
+     */
+    record EnrollmentKey(String regNo, String courseCode) {
+        static EnrollmentKey of(Enrollment enrollment) {
+            return new EnrollmentKey(enrollment.getStudent().getRegNo(),
+                enrollment.getCourse().getCode());
+        }
+    }
+}
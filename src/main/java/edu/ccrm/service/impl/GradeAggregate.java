@@ -0,0 +1,130 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Running grade-point totals for one student, overall and per semester.
+ * Each graded enrollment's contribution is remembered, so refreshing an
+ * enrollment after its grade or course changes is an O(1) swap of the old
+ * contribution for the new one. Points are kept as hundredths of a grade
+ * point in a long, so repeated updates never accumulate rounding drift.
+ */
+class GradeAggregate {
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final Totals overall = new Totals();
+    private final Map<Semester, Totals> bySemester = new EnumMap<>(Semester.class);
+
+    /**
+     * Recomputes the contribution of an enrollment from its current grade and course.
+     */
+    void refresh(Enrollment enrollment) {
+        Contribution updated = Contribution.of(enrollment);
+        Contribution previous = updated != null
+            ? contributions.put(enrollment.getCourse().getCode(), updated)
+            : contributions.remove(enrollment.getCourse().getCode());
+        if (Objects.equals(previous, updated)) {
+            return;
+        }
+        if (previous != null) {
+            subtract(previous);
+        }
+        if (updated != null) {
+            add(updated);
+        }
+    }
+
+    /**
+     * Drops the contribution of the given course, if any.
+     */
+    void remove(String courseCode) {
+        Contribution previous = contributions.remove(courseCode);
+        if (previous != null) {
+            subtract(previous);
+        }
+    }
+
+    double gpa() {
+        return overall.gpa();
+    }
+
+    double gpa(Semester semester) {
+        Totals totals = bySemester.get(semester);
+        return totals != null ? totals.gpa() : 0.0;
+    }
+
+    long totalPoints() {
+        return overall.points;
+    }
+
+    int totalCredits() {
+        return overall.credits;
+    }
+
+    long totalPoints(Semester semester) {
+        Totals totals = bySemester.get(semester);
+        return totals != null ? totals.points : 0L;
+    }
+
+    int totalCredits(Semester semester) {
+        Totals totals = bySemester.get(semester);
+        return totals != null ? totals.credits : 0;
+    }
+
+    boolean isEmpty() {
+        return contributions.isEmpty();
+    }
+
+    private void add(Contribution contribution) {
+        overall.add(contribution.points(), contribution.credits());
+        bySemester.computeIfAbsent(contribution.semester(), s -> new Totals())
+            .add(contribution.points(), contribution.credits());
+    }
+
+    private void subtract(Contribution contribution) {
+        overall.add(-contribution.points(), -contribution.credits());
+        Totals totals = bySemester.get(contribution.semester());
+        if (totals != null) {
+            totals.add(-contribution.points(), -contribution.credits());
+        }
+    }
+
+    /**
+     * Grade points for a single grade, in hundredths.
+     */
+    static long pointsOf(Grade grade) {
+        return Math.round(grade.getGradePoints() * 100);
+    }
+
+    private static final class Totals {
+        private long points;
+        private int credits;
+
+        void add(long points, int credits) {
+            this.points += points;
+            this.credits += credits;
+        }
+
+        double gpa() {
+            return credits > 0 ? (points / 100.0) / credits : 0.0;
+        }
+    }
+
+    private record Contribution(long points, int credits, Semester semester) {
+        static Contribution of(Enrollment enrollment) {
+            Grade grade = enrollment.getGrade();
+            if (grade == null) {
+                return null;
+            }
+            Course course = enrollment.getCourse();
+            int credits = course.getCredits();
+            return new Contribution(pointsOf(grade) * credits, credits, course.getSemester());
+        }
+    }
+}
@@ -0,0 +1,892 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Course;
+import edu.ccrm.domain.CourseListener;
+import edu.ccrm.domain.Enrollment;
+import edu.ccrm.domain.Grade;
+import edu.ccrm.domain.Semester;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.BulkEnrollmentResult;
+import edu.ccrm.service.BulkEnrollmentResult.Reason;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.CourseRegistryListener;
+import edu.ccrm.service.CourseService;
+import edu.ccrm.service.EnrollmentListener;
+import edu.ccrm.service.EnrollmentLoad;
+import edu.ccrm.service.EnrollmentRequest;
+import edu.ccrm.service.EnrollmentService;
+import edu.ccrm.service.Page;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.impl.BulkLoads.JoinedEnrollment;
+import edu.ccrm.util.CourseFullException;
+import edu.ccrm.util.DuplicateEnrollmentException;
+import edu.ccrm.util.MaxCreditLimitExceededException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * EnrollmentService whose enrollments live off-heap, in fixed-width records
+ * of a memory-mapped file, for students held by a {@link MappedStudentService}.
+ *
+ * <p>The file is a 64-byte header {@code [int magic][int version]
+ * [int recordBytes][int capacity][int rows][int live][int studentSlots]
+ * [int courseSlots]}, then the head of each student's enrollment list by
+ * student record, then an open-addressing course table of
+ * {@code [code][int head][int seatsTaken][int credits][int semester]}
+ * entries, then {@code capacity}
+ * rows of {@value #RECORD_BYTES} bytes:
+ * {@code [byte live][byte grade][int student][int nextForStudent][int nextForCourse][long enrolledAt][int course]}.
+ * Each student's and course's rows form a linked list, newest first.
+ * Removed rows are marked dead and skipped, never reused. As with
+ * {@link MappedStudentService}, opening the file only maps it and writes
+ * reach the disk when the OS writes the pages back, or on {@link #flush}.
+ *
+ * <p>Enforces the same duplicate, credit-limit and capacity rules as
+ * {@link DefaultEnrollmentService}. Waitlists are kept on-heap and do not
+ * survive a restart. Course details are read from the course service; the
+ * table keeps each course's credits and semester as of its last enrollment,
+ * so credit checks and GPAs still count rows whose course the service no
+ * longer holds, as after a restart. Such rows are left out of a student's
+ * enrollments, and a course removed from the service loses its rows.
+ * Enrollments are not added to {@link Student#getEnrollments()};
+ * returned enrollments are views over their rows, with times kept to the second.
+ *
+ * <p>Thread-safe: mutations take a write lock and reads a read lock.
+ */
+public class MappedEnrollmentService implements EnrollmentService, CourseRegistryListener {
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+    public static final int DEFAULT_COURSE_SLOTS = 1 << 12;
+
+    private static final int MAX_CREDITS_PER_SEMESTER = 21;
+    private static final Grade[] GRADES = Grade.values();
+    private static final Semester[] SEMESTERS = Semester.values();
+
+    private static final int MAGIC = 0x43434D45; // "CCME"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int ROWS_OFFSET = 16;
+    private static final int LIVE_OFFSET = 20;
+    private static final int STUDENT_SLOTS_OFFSET = 24;
+    private static final int COURSE_SLOTS_OFFSET = 28;
+
+    private static final int CODE_BYTES = 30;
+    private static final int COURSE_HEAD = Short.BYTES + CODE_BYTES;
+    private static final int COURSE_SEATS = COURSE_HEAD + Integer.BYTES;
+    private static final int COURSE_CREDITS = COURSE_SEATS + Integer.BYTES;
+    private static final int COURSE_SEMESTER = COURSE_CREDITS + Integer.BYTES;
+    private static final int COURSE_ENTRY_BYTES = COURSE_SEMESTER + Integer.BYTES;
+
+    private static final int LIVE = 0;
+    private static final int GRADE = 1;
+    private static final int STUDENT = 4;
+    private static final int NEXT_FOR_STUDENT = 8;
+    private static final int NEXT_FOR_COURSE = 12;
+    private static final int ENROLLED_AT = 16;
+    private static final int COURSE = 24;
+    static final int RECORD_BYTES = 32;
+
+    private static final int NONE = -1;
+
+    private final MappedByteBuffer buffer;
+    private final MappedStudentService studentService;
+    private final CourseService courseService;
+    private final int capacity;
+    private final int courseSlots;
+    private final int courseTableOffset;
+    private final int rowsOffset;
+    private final Map<Integer, SeatLedger> waitlists = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CourseListener courseListener = this::onCourseChanged;
+    private final List<EnrollmentListener> listeners = new CopyOnWriteArrayList<>();
+
+    private MappedEnrollmentService(MappedByteBuffer buffer, MappedStudentService studentService,
+                                    CourseService courseService) {
+        this.buffer = buffer;
+        this.studentService = studentService;
+        this.courseService = courseService;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.courseSlots = buffer.getInt(COURSE_SLOTS_OFFSET);
+        this.courseTableOffset = HEADER_BYTES + buffer.getInt(STUDENT_SLOTS_OFFSET) * Integer.BYTES;
+        this.rowsOffset = courseTableOffset + courseSlots * COURSE_ENTRY_BYTES;
+    }
+
+    /**
+     * Maps an enrollment table with the default capacity and course slots.
+     */
+    public static MappedEnrollmentService open(Path file, MappedStudentService studentService,
+                                               CourseService courseService) throws IOException {
+        return open(file, studentService, courseService, DEFAULT_CAPACITY, DEFAULT_COURSE_SLOTS);
+    }
+
+    /**
+     * Maps an enrollment table, creating it if the file does not exist. An
+     * existing file keeps the sizes it was created with and must have been
+     * created for a student table of the same capacity. The table listens
+     * to the course service for removed courses.
+     *
+     * @param capacity the maximum number of enrollments ever made, including removed ones
+     * @param courseSlots the maximum number of distinct courses, rounded up to a power of two
+     */
+    public static MappedEnrollmentService open(Path file, MappedStudentService studentService,
+                                               CourseService courseService, int capacity,
+                                               int courseSlots) throws IOException {
+        Objects.requireNonNull(studentService, "Student service cannot be null");
+        Objects.requireNonNull(courseService, "Course service cannot be null");
+        if (capacity <= 0 || courseSlots <= 0) {
+            throw new IllegalArgumentException("Capacity and course slots must be positive");
+        }
+        int studentSlots = studentService.getCapacity();
+        int slots = Integer.highestOneBit(courseSlots * 2 - 1);
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        long size = exists ? Files.size(file) : fileBytes(capacity, studentSlots, slots);
+        MappedByteBuffer buffer = MappedRecords.map(file, size);
+        if (!exists) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_BYTES);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(STUDENT_SLOTS_OFFSET, studentSlots);
+            buffer.putInt(COURSE_SLOTS_OFFSET, slots);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_BYTES
+                || buffer.getInt(STUDENT_SLOTS_OFFSET) != studentSlots
+                || fileBytes(buffer.getInt(CAPACITY_OFFSET), studentSlots, buffer.getInt(COURSE_SLOTS_OFFSET)) != size) {
+            throw new IOException("Not a version " + VERSION + " enrollment table for this student table: " + file);
+        }
+        MappedEnrollmentService service = new MappedEnrollmentService(buffer, studentService, courseService);
+        courseService.addRegistryListener(service);
+        return service;
+    }
+
+    private static long fileBytes(int capacity, int studentSlots, int courseSlots) {
+        return HEADER_BYTES + (long) studentSlots * Integer.BYTES + (long) courseSlots * COURSE_ENTRY_BYTES
+            + (long) capacity * RECORD_BYTES;
+    }
+
+    @Override
+    public Enrollment enrollStudent(Student student, Course course) {
+        Objects.requireNonNull(student, "Student cannot be null");
+        Objects.requireNonNull(course, "Course cannot be null");
+
+        Enrollment enrollment = null;
+        lock.writeLock().lock();
+        try {
+            int s = studentRecord(student);
+            int c = courseSlot(course, true);
+            if (find(s, c) >= 0) {
+                throw new DuplicateEnrollmentException(duplicateMessage(student, course));
+            }
+            if (creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                throw new MaxCreditLimitExceededException(creditLimitMessage(course));
+            }
+            if (hasFreeSeat(c, course.getCapacity())) {
+                enrollment = new View(this, add(s, c, LocalDateTime.now()), student, course);
+                takeSeat(c);
+                fireChanged(student, course);
+            } else if (!waitlist(c).enqueue(student)) {
+                throw new DuplicateEnrollmentException(
+                    "Student " + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        course.addListener(courseListener);
+
+        if (enrollment == null) {
+            throw new CourseFullException("Course " + course.getCode() + " is full; student "
+                + student.getRegNo() + " has been added to the waitlist");
+        }
+        return enrollment;
+    }
+
+    @Override
+    public BulkEnrollmentResult enrollAll(List<EnrollmentRequest> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkEnrollmentResult result = new BulkEnrollmentResult();
+        Set<Course> touchedCourses = new HashSet<>();
+
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < batch.size(); row++) {
+                EnrollmentRequest request = batch.get(row);
+                if (request == null || request.student() == null || request.course() == null) {
+                    result.reject(row, request, Reason.INVALID_REQUEST, "Student and course are required");
+                    continue;
+                }
+                Student student = request.student();
+                Course course = request.course();
+                int s = studentService.recordOf(student.getRegNo());
+                if (s < 0) {
+                    result.reject(row, request, Reason.INVALID_REQUEST, "Student " + student.getRegNo() + " not found");
+                    continue;
+                }
+                int c = courseSlot(course, true);
+
+                if (find(s, c) >= 0) {
+                    result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, duplicateMessage(student, course));
+                } else if (creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                    result.reject(row, request, Reason.MAX_CREDITS_EXCEEDED, creditLimitMessage(course));
+                } else if (hasFreeSeat(c, course.getCapacity())) {
+                    if (tableFull()) {
+                        result.reject(row, request, Reason.INVALID_REQUEST, tableFullMessage());
+                        continue;
+                    }
+                    result.accept(row, new View(this, add(s, c, LocalDateTime.now()), student, course));
+                    takeSeat(c);
+                    touchedCourses.add(course);
+                    fireChanged(student, course);
+                } else if (waitlist(c).enqueue(student)) {
+                    result.reject(row, request, Reason.WAITLISTED, "Course " + course.getCode()
+                        + " is full; student " + student.getRegNo() + " has been added to the waitlist");
+                    touchedCourses.add(course);
+                } else {
+                    result.reject(row, request, Reason.DUPLICATE_ENROLLMENT, "Student "
+                        + student.getRegNo() + " is already waitlisted for course " + course.getCode());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Rows are joined against the given registries, which should be the
+     * ones this table was opened with; a student must also hold a record in
+     * this table's student service. The whole batch is written under one
+     * acquisition of the write lock.
+     */
+    @Override
+    public BulkLoadResult<Enrollment> loadEnrollments(List<EnrollmentLoad> batch,
+                                                      StudentService students, CourseService courses) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Enrollment> result = new BulkLoadResult<>(batch.size());
+        List<JoinedEnrollment> joined = BulkLoads.join(batch, students, courses, result);
+
+        Set<Course> touchedCourses = new HashSet<>();
+        lock.writeLock().lock();
+        try {
+            for (JoinedEnrollment row : joined) {
+                Student student = row.student();
+                Course course = row.course();
+                int s = studentService.recordOf(student.getRegNo());
+                if (s < 0) {
+                    result.reject(row.row(), BulkLoadResult.Reason.UNKNOWN_REFERENCE,
+                        "Student " + student.getRegNo() + " not found");
+                    continue;
+                }
+                int c = courseSlot(course, true);
+                if (find(s, c) >= 0) {
+                    result.reject(row.row(), BulkLoadResult.Reason.ALREADY_EXISTS,
+                        BulkLoads.alreadyEnrolledMessage(student, course));
+                    continue;
+                }
+                if (tableFull()) {
+                    result.reject(row.row(), BulkLoadResult.Reason.INVALID_ROW, tableFullMessage());
+                    continue;
+                }
+                int added = add(s, c, row.enrollmentDate());
+                if (row.grade() != null) {
+                    buffer.put(rowOffset(added) + GRADE, (byte) row.grade().ordinal());
+                }
+                takeSeat(c);
+                result.load(row.row(), new View(this, added, student, course));
+                touchedCourses.add(course);
+                fireChanged(student, course);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        touchedCourses.forEach(course -> course.addListener(courseListener));
+        return result;
+    }
+
+    @Override
+    public void unenrollStudent(Student student, Course course) {
+        lock.writeLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            if (c < 0) {
+                return;
+            }
+            int row = find(studentService.recordOf(student.getRegNo()), c);
+            if (row >= 0) {
+                buffer.put(rowOffset(row) + LIVE, (byte) 0);
+                buffer.putInt(LIVE_OFFSET, buffer.getInt(LIVE_OFFSET) - 1);
+                int seats = courseOffset(c) + COURSE_SEATS;
+                buffer.putInt(seats, buffer.getInt(seats) - 1);
+                fireChanged(student, course);
+                promoteWaitlisted(c, course);
+            } else if (waitlists.containsKey(c)) {
+                waitlists.get(c).removeFromWaitlist(student);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void recordGrade(Student student, Course course, Grade grade) {
+        Objects.requireNonNull(grade, "Grade cannot be null");
+        lock.writeLock().lock();
+        try {
+            int row = find(studentService.recordOf(student.getRegNo()), courseSlot(course, false));
+            if (row >= 0) {
+                buffer.put(rowOffset(row) + GRADE, (byte) grade.ordinal());
+                fireChanged(student, course);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Enrollment> getEnrollmentsForStudent(Student student) {
+        lock.readLock().lock();
+        try {
+            int s = studentService.recordOf(student.getRegNo());
+            List<Enrollment> enrollments = new ArrayList<>();
+            if (s >= 0) {
+                for (int row : studentRows(s)) {
+                    Course course = registeredCourse(courseOf(row));
+                    if (course != null) {
+                        enrollments.add(new View(this, row, student, course));
+                    }
+                }
+            }
+            return enrollments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Enrollment> getEnrollmentsForCourse(Course course) {
+        lock.readLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            List<Enrollment> enrollments = new ArrayList<>();
+            if (c >= 0) {
+                for (int row : courseRows(c)) {
+                    enrollments.add(new View(this, row, studentService.read(studentOf(row)), course));
+                }
+            }
+            return enrollments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pages through a course's enrollments in registration number order as a
+     * bounded top-N selection over the roster, O(roster * log pageSize).
+     */
+    @Override
+    public Page<Enrollment> getEnrollmentsForCourse(Course course, String pageToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        lock.readLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            if (c < 0) {
+                return new Page<>(new ArrayList<>(), null);
+            }
+            TreeMap<String, Integer> smallest = new TreeMap<>();
+            for (int row : courseRows(c)) {
+                String regNo = studentService.regNoOf(studentOf(row));
+                if (pageToken == null || regNo.compareTo(pageToken) > 0) {
+                    smallest.put(regNo, row);
+                    if (smallest.size() > pageSize + 1) {
+                        smallest.pollLastEntry();
+                    }
+                }
+            }
+            boolean hasNext = smallest.size() > pageSize;
+            if (hasNext) {
+                smallest.pollLastEntry();
+            }
+            List<Enrollment> items = new ArrayList<>(smallest.size());
+            smallest.values().forEach(row -> items.add(new View(this, row, studentService.read(studentOf(row)), course)));
+            return new Page<>(items, hasNext ? smallest.lastKey() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams a course's enrollments in registration number order. Only the
+     * row numbers, sorted by registration number, are copied up front; views
+     * are created as the stream is consumed.
+     */
+    @Override
+    public Stream<Enrollment> streamEnrollmentsForCourse(Course course) {
+        int[] rows;
+        lock.readLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            TreeMap<String, Integer> byRegNo = new TreeMap<>();
+            if (c >= 0) {
+                for (int row : courseRows(c)) {
+                    byRegNo.put(studentService.regNoOf(studentOf(row)), row);
+                }
+            }
+            rows = byRegNo.values().stream().mapToInt(Integer::intValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.stream(rows).mapToObj(row -> new View(this, row, studentService.read(studentOf(row)), course));
+    }
+
+    @Override
+    public List<Student> getWaitlist(Course course) {
+        lock.readLock().lock();
+        try {
+            SeatLedger ledger = waitlists.get(courseSlot(course, false));
+            return ledger != null ? ledger.waitlist() : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addEnrollmentListener(EnrollmentListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
+    }
+
+    @Override
+    public double calculateGPA(Student student) {
+        return calculateGPA(student, null);
+    }
+
+    /**
+     * Computes the GPA from the student's rows, optionally limited to one
+     * semester, using the same arithmetic as {@link GradeAggregate}.
+     */
+    @Override
+    public double calculateGPA(Student student, Semester semester) {
+        lock.readLock().lock();
+        try {
+            int s = studentService.recordOf(student.getRegNo());
+            if (s < 0) {
+                return 0.0;
+            }
+            long points = 0;
+            int credits = 0;
+            for (int row : studentRows(s)) {
+                Grade grade = grade(row);
+                int c = courseOf(row);
+                if (grade != null && (semester == null || semesterOf(c) == semester)) {
+                    int courseCredits = creditsOf(c);
+                    points += GradeAggregate.pointsOf(grade) * courseCredits;
+                    credits += courseCredits;
+                }
+            }
+            return credits > 0 ? (points / 100.0) / credits : 0.0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live enrollments.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return buffer.getInt(LIVE_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all changes to the mapped file to the storage device.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nothing to do: a course's details are recorded when it is enrolled in.
+     */
+    @Override
+    public void courseAdded(Course course) {
+    }
+
+    /**
+     * Removes every enrollment and waitlist entry for a course the course
+     * service has dropped. A course replaced by another instance under the
+     * same code keeps its rows.
+     */
+    @Override
+    public void courseRemoved(Course course) {
+        if (courseService.getCourse(course.getCode()).isPresent()) {
+            return;
+        }
+        course.removeListener(courseListener);
+        List<Student> dropped = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            if (c < 0) {
+                return;
+            }
+            for (int row : courseRows(c)) {
+                buffer.put(rowOffset(row) + LIVE, (byte) 0);
+                dropped.add(studentService.read(studentOf(row)));
+            }
+            buffer.putInt(LIVE_OFFSET, buffer.getInt(LIVE_OFFSET) - dropped.size());
+            buffer.putInt(courseOffset(c) + COURSE_SEATS, 0);
+            waitlists.remove(c);
+            dropped.forEach(student -> fireChanged(student, course));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void onCourseChanged(Course course, Course.Property property, Object oldValue, Object newValue) {
+        if (property != Course.Property.CAPACITY && property != Course.Property.CREDITS
+                && property != Course.Property.SEMESTER) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int c = courseSlot(course, false);
+            if (c < 0) {
+                return;
+            }
+            if (property == Course.Property.CAPACITY) {
+                promoteWaitlisted(c, course);
+            } else {
+                recordDetails(c, course);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves waitlisted students into free seats in FIFO order, dropping those
+     * who can no longer take the course. Stops while the table is full,
+     * leaving the rest waitlisted. Caller must hold the write lock.
+     */
+    private void promoteWaitlisted(int c, Course course) {
+        SeatLedger ledger = waitlists.get(c);
+        while (ledger != null && ledger.hasWaitlist() && hasFreeSeat(c, course.getCapacity()) && !tableFull()) {
+            Student next = ledger.poll();
+            int s = studentService.recordOf(next.getRegNo());
+            if (s < 0 || find(s, c) >= 0
+                    || creditsFor(s, course.getSemester()) + course.getCredits() > MAX_CREDITS_PER_SEMESTER) {
+                continue;
+            }
+            add(s, c, LocalDateTime.now());
+            takeSeat(c);
+            fireChanged(next, course);
+        }
+    }
+
+    /**
+     * Appends a row and links it at the head of its student's and course's
+     * lists. Caller must hold the write lock.
+     */
+    private int add(int s, int c, LocalDateTime enrolledAt) {
+        int row = buffer.getInt(ROWS_OFFSET);
+        if (row == capacity) {
+            throw new IllegalStateException(tableFullMessage());
+        }
+        int at = rowOffset(row);
+        int studentHead = HEADER_BYTES + s * Integer.BYTES;
+        int courseHead = courseOffset(c) + COURSE_HEAD;
+        buffer.put(at + LIVE, (byte) 1);
+        buffer.put(at + GRADE, (byte) NONE);
+        buffer.putInt(at + STUDENT, s);
+        buffer.putInt(at + NEXT_FOR_STUDENT, buffer.getInt(studentHead) - 1);
+        buffer.putInt(at + NEXT_FOR_COURSE, buffer.getInt(courseHead) - 1);
+        buffer.putLong(at + ENROLLED_AT, enrolledAt.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(at + COURSE, c);
+        buffer.putInt(studentHead, row + 1);
+        buffer.putInt(courseHead, row + 1);
+        buffer.putInt(ROWS_OFFSET, row + 1);
+        buffer.putInt(LIVE_OFFSET, buffer.getInt(LIVE_OFFSET) + 1);
+        return row;
+    }
+
+    /**
+     * Returns the live row for a (student, course) pair, or -1. Walks the
+     * student's list, which is short. Caller must hold a lock.
+     */
+    private int find(int s, int c) {
+        if (s < 0 || c < 0) {
+            return NONE;
+        }
+        for (int row = buffer.getInt(HEADER_BYTES + s * Integer.BYTES) - 1; row != NONE;
+                row = buffer.getInt(rowOffset(row) + NEXT_FOR_STUDENT)) {
+            if (isLive(row) && courseOf(row) == c) {
+                return row;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns a student's live rows, oldest first. Caller must hold a lock.
+     */
+    private int[] studentRows(int s) {
+        return liveRows(buffer.getInt(HEADER_BYTES + s * Integer.BYTES) - 1, NEXT_FOR_STUDENT);
+    }
+
+    /**
+     * Returns a course's live rows, oldest first. Caller must hold a lock.
+     */
+    private int[] courseRows(int c) {
+        return liveRows(buffer.getInt(courseOffset(c) + COURSE_HEAD) - 1, NEXT_FOR_COURSE);
+    }
+
+    private int[] liveRows(int head, int nextField) {
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = head; row != NONE; row = buffer.getInt(rowOffset(row) + nextField)) {
+            if (isLive(row)) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        // Lists are linked newest first
+        int[] oldestFirst = new int[count];
+        for (int i = 0; i < count; i++) {
+            oldestFirst[i] = rows[count - 1 - i];
+        }
+        return oldestFirst;
+    }
+
+    /**
+     * Sums the student's credits in a semester. Caller must hold a lock.
+     */
+    private int creditsFor(int s, Semester semester) {
+        int credits = 0;
+        for (int row : studentRows(s)) {
+            int c = courseOf(row);
+            if (semesterOf(c) == semester) {
+                credits += creditsOf(c);
+            }
+        }
+        return credits;
+    }
+
+    private void fireChanged(Student student, Course course) {
+        listeners.forEach(listener -> listener.enrollmentChanged(student, course));
+    }
+
+    /**
+     * Counts a seat as taken, once its row has been added. Caller must hold
+     * the write lock.
+     */
+    private void takeSeat(int c) {
+        int seats = courseOffset(c) + COURSE_SEATS;
+        buffer.putInt(seats, buffer.getInt(seats) + 1);
+    }
+
+    /**
+     * Returns whether every row has been used; removed rows are not reused.
+     */
+    private boolean tableFull() {
+        return buffer.getInt(ROWS_OFFSET) == capacity;
+    }
+
+    private String tableFullMessage() {
+        return "Enrollment table is full (" + capacity + " records)";
+    }
+
+    /**
+     * @param courseCapacity zero or less means unlimited
+     */
+    private boolean hasFreeSeat(int c, int courseCapacity) {
+        return courseCapacity <= 0 || buffer.getInt(courseOffset(c) + COURSE_SEATS) < courseCapacity;
+    }
+
+    private SeatLedger waitlist(int c) {
+        return waitlists.computeIfAbsent(c, slot -> new SeatLedger());
+    }
+
+    private int studentRecord(Student student) {
+        int s = studentService.recordOf(student.getRegNo());
+        if (s < 0) {
+            throw new IllegalArgumentException("Student " + student.getRegNo() + " not found");
+        }
+        return s;
+    }
+
+    /**
+     * Returns the course table slot holding a course code, claiming a free
+     * one if asked to. Claiming also records the course's credits and
+     * semester. Caller must hold the write lock to claim.
+     *
+     * @return the slot, or -1 if the course is absent and not claimed
+     */
+    private int courseSlot(Course course, boolean claim) {
+        String code = course.getCode();
+        int mask = courseSlots - 1;
+        for (int slot = (code.hashCode() & 0x7fffffff) & mask, probes = 0; probes < courseSlots;
+                slot = (slot + 1) & mask, probes++) {
+            int at = courseOffset(slot);
+            if (buffer.getShort(at) == 0) {
+                if (!claim) {
+                    return NONE;
+                }
+                MappedRecords.putString(buffer, at, CODE_BYTES, code, "Course code");
+                recordDetails(slot, course);
+                return slot;
+            }
+            if (code.equals(MappedRecords.getString(buffer, at))) {
+                if (claim) {
+                    recordDetails(slot, course);
+                }
+                return slot;
+            }
+        }
+        if (claim) {
+            throw new IllegalStateException("Course table is full (" + courseSlots + " courses)");
+        }
+        return NONE;
+    }
+
+    /**
+     * Resolves a course table slot through the course service.
+     *
+     * @return the course, or null if the service does not hold it
+     */
+    private Course registeredCourse(int c) {
+        return courseService.getCourse(MappedRecords.getString(buffer, courseOffset(c))).orElse(null);
+    }
+
+    /**
+     * Returns a course's credits from the course service, or as recorded
+     * in the table if the service does not hold it.
+     */
+    private int creditsOf(int c) {
+        Course course = registeredCourse(c);
+        return course != null ? course.getCredits() : buffer.getInt(courseOffset(c) + COURSE_CREDITS);
+    }
+
+    /**
+     * Returns a course's semester from the course service, or as recorded
+     * in the table if the service does not hold it.
+     */
+    private Semester semesterOf(int c) {
+        Course course = registeredCourse(c);
+        if (course != null) {
+            return course.getSemester();
+        }
+        int ordinal = buffer.getInt(courseOffset(c) + COURSE_SEMESTER);
+        return ordinal >= 0 ? SEMESTERS[ordinal] : null;
+    }
+
+    /**
+     * Caller must hold the write lock.
+     */
+    private void recordDetails(int c, Course course) {
+        int at = courseOffset(c);
+        buffer.putInt(at + COURSE_CREDITS, course.getCredits());
+        buffer.putInt(at + COURSE_SEMESTER, course.getSemester() != null ? course.getSemester().ordinal() : NONE);
+    }
+
+    private boolean isLive(int row) {
+        return buffer.get(rowOffset(row) + LIVE) != 0;
+    }
+
+    private int studentOf(int row) {
+        return buffer.getInt(rowOffset(row) + STUDENT);
+    }
+
+    private int courseOf(int row) {
+        return buffer.getInt(rowOffset(row) + COURSE);
+    }
+
+    private Grade grade(int row) {
+        byte ordinal = buffer.get(rowOffset(row) + GRADE);
+        return ordinal >= 0 ? GRADES[ordinal] : null;
+    }
+
+    private int courseOffset(int c) {
+        return courseTableOffset + c * COURSE_ENTRY_BYTES;
+    }
+
+    private int rowOffset(int row) {
+        return rowsOffset + row * RECORD_BYTES;
+    }
+
+    private static String duplicateMessage(Student student, Course course) {
+        return "Student " + student.getRegNo() + " is already enrolled in course " + course.getCode();
+    }
+
+    private static String creditLimitMessage(Course course) {
+        return "Enrolling in " + course.getCode() + " would exceed the maximum credit limit of "
+            + MAX_CREDITS_PER_SEMESTER;
+    }
+
+    /**
+     * Enrollment backed by a table row. The grade and date are read from the
+     * row on each call, and setting the grade writes through to it.
+     */
+    private static final class View extends Enrollment {
+        private final MappedEnrollmentService service;
+        private final int row;
+
+        private View(MappedEnrollmentService service, int row, Student student, Course course) {
+            super(student, course, null);
+            this.service = service;
+            this.row = row;
+        }
+
+        @Override
+        public LocalDateTime getEnrollmentDate() {
+            service.lock.readLock().lock();
+            try {
+                long epochSecond = service.buffer.getLong(service.rowOffset(row) + ENROLLED_AT);
+                return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            } finally {
+                service.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Grade getGrade() {
+            service.lock.readLock().lock();
+            try {
+                return service.grade(row);
+            } finally {
+                service.lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void setGrade(Grade grade) {
+            service.lock.writeLock().lock();
+            try {
+                service.buffer.put(service.rowOffset(row) + GRADE, grade != null ? (byte) grade.ordinal() : NONE);
+            } finally {
+                service.lock.writeLock().unlock();
+            }
+        }
+    }
+}
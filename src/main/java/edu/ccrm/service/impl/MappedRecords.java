@@ -0,0 +1,302 @@
+package edu.ccrm.service.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/**
+ * Helpers shared by the memory-mapped services: mapping a table file,
+ * fixed-width string fields, and an open-addressing hash index stored
+ * inside the mapping.
+ */
+final class MappedRecords {
+    private MappedRecords() {
+    }
+
+    /**
+     * Maps a table file of the given size read-write, creating it if needed.
+     * New files are sparse, so unused capacity takes no disk space on most
+     * file systems.
+     *
+     * @return the mapping, or throws if the file exists with a different size
+     */
+    static MappedByteBuffer map(Path file, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Table of " + size + " bytes exceeds the 2 GB mapping limit");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                throw new IOException("Table " + file + " has " + existing + " bytes, expected " + size);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Encodes a string for a field of maxBytes payload bytes.
+     *
+     * @return the UTF-8 bytes, or null for a null value
+     * @throws IllegalArgumentException if the encoded value does not fit
+     */
+    static byte[] encode(String value, int maxBytes, String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > maxBytes) {
+            throw new IllegalArgumentException(fieldName + " exceeds " + maxBytes + " bytes: " + value);
+        }
+        return utf8;
+    }
+
+    /**
+     * Writes a string as {@code [short length][utf8 bytes]} into a field of
+     * maxBytes payload bytes; null is stored as length -1.
+     *
+     * @throws IllegalArgumentException if the encoded value does not fit
+     */
+    static void putString(ByteBuffer buffer, int offset, int maxBytes, String value, String fieldName) {
+        putEncoded(buffer, offset, encode(value, maxBytes, fieldName));
+    }
+
+    /**
+     * Writes a value returned by {@link #encode}.
+     */
+    static void putEncoded(ByteBuffer buffer, int offset, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.putShort(offset, (short) -1);
+            return;
+        }
+        buffer.putShort(offset, (short) utf8.length);
+        buffer.put(offset + Short.BYTES, utf8);
+    }
+
+    static String getString(ByteBuffer buffer, int offset) {
+        short length = buffer.getShort(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        buffer.get(offset + Short.BYTES, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the smallest power of two that is at least twice the capacity,
+     * keeping a hash index at most half full.
+     */
+    static int indexSlots(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+    }
+
+    /**
+     * Open-addressing hash index over string keys, stored as an int array
+     * inside a mapped buffer. Each slot holds record number + 1, 0 for empty
+     * or -1 for a deleted entry. Keys are not stored in the index; probes
+     * compare against the key read back from the record.
+     *
+     * <p>The numbers of live and deleted entries are kept as two ints at a
+     * header offset of the owner's choosing. Once they fill
+     * {@value #REBUILD_PERCENT}% of the slots, the live entries are
+     * reinserted in place, clearing the deleted ones, so lookups of absent
+     * keys keep finding an empty slot. Probes are capped at one pass over
+     * the table regardless.
+     */
+    static final class HashIndex {
+        private static final int EMPTY = 0;
+        private static final int DELETED = -1;
+        private static final int REBUILD_PERCENT = 75;
+
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int mask;
+        private final int liveOffset;
+        private final int deletedOffset;
+        private final IntFunction<String> keyOf;
+
+        /**
+         * @param slots a power of two
+         * @param countsOffset where the live and deleted entry counts are kept
+         * @param keyOf reads the indexed key of a record number
+         */
+        HashIndex(ByteBuffer buffer, int offset, int slots, int countsOffset, IntFunction<String> keyOf) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.mask = slots - 1;
+            this.liveOffset = countsOffset;
+            this.deletedOffset = countsOffset + Integer.BYTES;
+            this.keyOf = keyOf;
+        }
+
+        static int bytes(int slots) {
+            return slots * Integer.BYTES;
+        }
+
+        /**
+         * Bytes of header the entry counts take.
+         */
+        static int countsBytes() {
+            return 2 * Integer.BYTES;
+        }
+
+        /**
+         * Returns the record number stored under a key, or -1.
+         */
+        int find(String key) {
+            int slot = spread(key.hashCode()) & mask;
+            for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+                int entry = slotAt(slot);
+                if (entry == EMPTY) {
+                    return -1;
+                }
+                if (entry != DELETED && key.equals(keyOf.apply(entry - 1))) {
+                    return entry - 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Stores a record number under a key unless the key is already present.
+         *
+         * @return true if stored
+         */
+        boolean insert(String key, int record) {
+            int target = -1;
+            int slot = spread(key.hashCode()) & mask;
+            for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+                int entry = slotAt(slot);
+                if (entry == EMPTY) {
+                    if (target < 0) {
+                        target = slot;
+                    }
+                    break;
+                }
+                if (entry == DELETED) {
+                    if (target < 0) {
+                        target = slot;
+                    }
+                } else if (key.equals(keyOf.apply(entry - 1))) {
+                    return false;
+                }
+            }
+            if (target < 0) {
+                throw new IllegalStateException("Hash index is full");
+            }
+            if (slotAt(target) == DELETED) {
+                addCount(deletedOffset, -1);
+            }
+            setSlot(target, record + 1);
+            addCount(liveOffset, 1);
+            rebuildIfCrowded();
+            return true;
+        }
+
+        /**
+         * Removes a key if it maps to the given record.
+         */
+        void remove(String key, int record) {
+            int slot = spread(key.hashCode()) & mask;
+            for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+                int entry = slotAt(slot);
+                if (entry == EMPTY) {
+                    return;
+                }
+                if (entry == record + 1) {
+                    setSlot(slot, DELETED);
+                    addCount(liveOffset, -1);
+                    addCount(deletedOffset, 1);
+                    rebuildIfCrowded();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Recounts the live and deleted entries from the slots, for tables
+         * written before the counts were kept.
+         */
+        void recount() {
+            int live = 0;
+            int deleted = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                int entry = slotAt(slot);
+                if (entry == DELETED) {
+                    deleted++;
+                } else if (entry != EMPTY) {
+                    live++;
+                }
+            }
+            buffer.putInt(liveOffset, live);
+            buffer.putInt(deletedOffset, deleted);
+            rebuildIfCrowded();
+        }
+
+        private void rebuildIfCrowded() {
+            long used = (long) buffer.getInt(liveOffset) + buffer.getInt(deletedOffset);
+            if (buffer.getInt(deletedOffset) > 0 && used * 100 > (long) (mask + 1) * REBUILD_PERCENT) {
+                rebuild();
+            }
+        }
+
+        /**
+         * Clears the table and reinserts its live entries, so every key keeps
+         * the record it had.
+         */
+        private void rebuild() {
+            int live = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                if (slotAt(slot) > EMPTY) {
+                    live++;
+                }
+            }
+            int[] entries = new int[live];
+            live = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                int entry = slotAt(slot);
+                if (entry > EMPTY) {
+                    entries[live++] = entry;
+                }
+                setSlot(slot, EMPTY);
+            }
+            for (int i = 0; i < live; i++) {
+                int slot = spread(keyOf.apply(entries[i] - 1).hashCode()) & mask;
+                while (slotAt(slot) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                setSlot(slot, entries[i]);
+            }
+            buffer.putInt(liveOffset, live);
+            buffer.putInt(deletedOffset, 0);
+        }
+
+        private int slotAt(int slot) {
+            return buffer.getInt(offset + slot * Integer.BYTES);
+        }
+
+        private void setSlot(int slot, int entry) {
+            buffer.putInt(offset + slot * Integer.BYTES, entry);
+        }
+
+        private void addCount(int countOffset, int delta) {
+            buffer.putInt(countOffset, buffer.getInt(countOffset) + delta);
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
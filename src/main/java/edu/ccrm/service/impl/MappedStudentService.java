@@ -0,0 +1,661 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Person;
+import edu.ccrm.domain.PersonListener;
+import edu.ccrm.domain.Student;
+import edu.ccrm.service.BulkLoadResult;
+import edu.ccrm.service.BulkLoadResult.Reason;
+import edu.ccrm.service.Page;
+import edu.ccrm.service.StudentLoad;
+import edu.ccrm.service.StudentService;
+import edu.ccrm.service.impl.MappedRecords.HashIndex;
+import edu.ccrm.util.IdGenerator;
+import edu.ccrm.util.SnowflakeIdGenerator;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * StudentService whose students live off-heap, in fixed-width records of a
+ * memory-mapped file.
+ *
+ * <p>The file is a 64-byte header {@code [int magic][int version]
+ * [int recordBytes][int capacity][int count][int activeCount]
+ * [int sharedEmails][int regNoLive][int regNoDeleted][int emailLive]
+ * [int emailDeleted][int countsKept]}, then hash indexes by registration
+ * number and by lower-cased email, then
+ * {@code capacity} records of {@value #RECORD_BYTES} bytes:
+ * {@code [byte flags][long id][long createdAt][long updatedAt][regNo][fullName][email]},
+ * times in epoch seconds (UTC) and strings as length-prefixed UTF-8.
+ * Opening an existing file only maps it; nothing is loaded. Writes go to the
+ * mapping and reach the file when the OS writes the pages back, or at once
+ * on {@link #flush}. A crash between the two can lose or tear recent writes.
+ *
+ * <p>Students are created on demand, so each lookup returns a new instance.
+ * A change made through a setter writes just that property back to the
+ * record, so an older instance cannot undo changes made through others;
+ * other instances do not see them until looked up again.
+ * Capacity is fixed when the file is created.
+ *
+ * <p>Lookups by registration number and email are O(1). Name search,
+ * listing active students and paging scan the records, so they cost
+ * O(students) per call. Thread-safe: reads share a read lock and writes
+ * take a write lock.
+ */
+public class MappedStudentService implements StudentService {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int MAGIC = 0x43434D53; // "CCMS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int ACTIVE_COUNT_OFFSET = 20;
+    private static final int SHARED_EMAILS_OFFSET = 24;
+    private static final int REG_NO_INDEX_COUNTS_OFFSET = 28;
+    private static final int EMAIL_INDEX_COUNTS_OFFSET = REG_NO_INDEX_COUNTS_OFFSET + HashIndex.countsBytes();
+    private static final int INDEX_COUNTS_KEPT_OFFSET = EMAIL_INDEX_COUNTS_OFFSET + HashIndex.countsBytes();
+
+    private static final int ACTIVE = 1;
+    private static final int REG_NO_BYTES = 30;
+    private static final int NAME_BYTES = 126;
+    private static final int EMAIL_BYTES = 126;
+    private static final int FLAGS = 0;
+    private static final int ID = 8;
+    private static final int CREATED_AT = 16;
+    private static final int UPDATED_AT = 24;
+    private static final int REG_NO = 32;
+    private static final int FULL_NAME = REG_NO + Short.BYTES + REG_NO_BYTES;
+    private static final int EMAIL = FULL_NAME + Short.BYTES + NAME_BYTES;
+    static final int RECORD_BYTES = EMAIL + Short.BYTES + EMAIL_BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int recordsOffset;
+    private final HashIndex byRegNo;
+    private final HashIndex byEmail;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PersonListener writeBack = this::onStudentChanged;
+    private final IdGenerator idGenerator;
+
+    private MappedStudentService(MappedByteBuffer buffer, int capacity, IdGenerator idGenerator) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.idGenerator = idGenerator;
+        int slots = MappedRecords.indexSlots(capacity);
+        int emailIndexOffset = HEADER_BYTES + HashIndex.bytes(slots);
+        this.recordsOffset = emailIndexOffset + HashIndex.bytes(slots);
+        this.byRegNo = new HashIndex(buffer, HEADER_BYTES, slots, REG_NO_INDEX_COUNTS_OFFSET, this::regNoAt);
+        this.byEmail = new HashIndex(buffer, emailIndexOffset, slots, EMAIL_INDEX_COUNTS_OFFSET,
+            record -> emailKey(emailAt(record)));
+    }
+
+    /**
+     * Maps a student table, creating it with the given capacity if the file
+     * does not exist. An existing file keeps the capacity it was created with.
+     */
+    public static MappedStudentService open(Path file, int capacity) throws IOException {
+        return open(file, capacity, new SnowflakeIdGenerator());
+    }
+
+    /**
+     * Maps a student table, assigning IDs for new students from the given generator.
+     */
+    public static MappedStudentService open(Path file, int capacity, IdGenerator idGenerator) throws IOException {
+        Objects.requireNonNull(idGenerator, "ID generator cannot be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        long size = exists ? Files.size(file) : fileBytes(capacity);
+        MappedByteBuffer buffer = MappedRecords.map(file, size);
+        if (!exists) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_BYTES);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(INDEX_COUNTS_KEPT_OFFSET, 1);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_BYTES
+                || fileBytes(buffer.getInt(CAPACITY_OFFSET)) != size) {
+            throw new IOException("Not a version " + VERSION + " student table: " + file);
+        }
+        MappedStudentService service = new MappedStudentService(buffer, buffer.getInt(CAPACITY_OFFSET), idGenerator);
+        if (buffer.getInt(INDEX_COUNTS_KEPT_OFFSET) != 1) {
+            // Written before the index entry counts were kept
+            service.byRegNo.recount();
+            service.byEmail.recount();
+            buffer.putInt(INDEX_COUNTS_KEPT_OFFSET, 1);
+        }
+        return service;
+    }
+
+    private static long fileBytes(int capacity) {
+        return HEADER_BYTES + 2L * HashIndex.bytes(MappedRecords.indexSlots(capacity))
+            + (long) capacity * RECORD_BYTES;
+    }
+
+    @Override
+    public Student createStudent(String regNo, String fullName, String email) {
+        Objects.requireNonNull(regNo, "Registration number cannot be null");
+        Objects.requireNonNull(fullName, "Full name cannot be null");
+        Objects.requireNonNull(email, "Email cannot be null");
+
+        Student student = new Student(idGenerator.nextId(), regNo, fullName, email);
+        lock.writeLock().lock();
+        try {
+            if (byRegNo.find(regNo) >= 0) {
+                throw new IllegalArgumentException("Student with registration number " + regNo + " already exists");
+            }
+            if (byEmail.find(emailKey(email)) >= 0) {
+                throw new IllegalArgumentException("Student with email " + email + " already exists");
+            }
+            if (count() == capacity) {
+                throw new IllegalStateException("Student table is full (" + capacity + " records)");
+            }
+            append(student);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        student.addListener(writeBack);
+        return student;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Keys of the rows loaded so far are kept in hash sets sized for the
+     * batch, and the whole batch is written under one acquisition of the
+     * write lock. Rows past the table's capacity are rejected as invalid.
+     */
+    @Override
+    public BulkLoadResult<Student> loadStudents(List<StudentLoad> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+        BulkLoadResult<Student> result = new BulkLoadResult<>(batch.size());
+        int setCapacity = BulkLoads.hashCapacity(batch.size());
+        Set<String> regNos = new HashSet<>(setCapacity);
+        Set<String> emailKeys = new HashSet<>(setCapacity);
+        boolean[] valid = new boolean[batch.size()];
+        for (int row = 0; row < batch.size(); row++) {
+            StudentLoad load = batch.get(row);
+            if (load == null || load.regNo() == null || load.fullName() == null || load.email() == null) {
+                result.reject(row, Reason.INVALID_ROW, "Registration number, full name and email are required");
+                continue;
+            }
+            valid[row] = true;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < batch.size(); row++) {
+                if (!valid[row]) {
+                    continue;
+                }
+                StudentLoad load = batch.get(row);
+                String emailKey = emailKey(load.email());
+                if (regNos.contains(load.regNo())) {
+                    result.reject(row, Reason.DUPLICATE_IN_BATCH,
+                        "Registration number " + load.regNo() + " repeats an earlier row");
+                } else if (emailKeys.contains(emailKey)) {
+                    result.reject(row, Reason.DUPLICATE_IN_BATCH, "Email " + load.email() + " repeats an earlier row");
+                } else if (byRegNo.find(load.regNo()) >= 0) {
+                    result.reject(row, Reason.ALREADY_EXISTS,
+                        "Student with registration number " + load.regNo() + " already exists");
+                } else if (byEmail.find(emailKey) >= 0) {
+                    result.reject(row, Reason.ALREADY_EXISTS,
+                        "Student with email " + load.email() + " already exists");
+                } else if (count() == capacity) {
+                    result.reject(row, Reason.INVALID_ROW, "Student table is full (" + capacity + " records)");
+                } else {
+                    Student student = new Student(idGenerator.nextId(), load.regNo(), load.fullName(), load.email());
+                    student.setActive(load.active());
+                    try {
+                        append(student);
+                    } catch (IllegalArgumentException e) {
+                        result.reject(row, Reason.INVALID_ROW, e.getMessage());
+                        continue;
+                    }
+                    regNos.add(load.regNo());
+                    emailKeys.add(emailKey);
+                    result.load(row, student);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        result.getLoaded().forEach(loaded -> loaded.item().addListener(writeBack));
+        return result;
+    }
+
+    @Override
+    public Optional<Student> getStudent(String regNo) {
+        if (regNo == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int record = byRegNo.find(regNo);
+            return record >= 0 ? Optional.of(materialize(record)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Student> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int record = byEmail.find(emailKey(email));
+            return record >= 0 ? Optional.of(materialize(record)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scans every record, matching the prefix against the full name from
+     * the start of each word.
+     */
+    @Override
+    public List<Student> searchByName(String prefix, int limit) {
+        String key = nameKey(prefix);
+        List<Student> matches = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            for (int record = 0, count = count(); record < count && matches.size() < limit; record++) {
+                String name = nameKey(MappedRecords.getString(buffer, offset(record) + FULL_NAME));
+                if (name.startsWith(key) || name.contains(" " + key)) {
+                    matches.add(materialize(record));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> getAllStudents() {
+        lock.readLock().lock();
+        try {
+            List<Student> all = new ArrayList<>(count());
+            for (int record = 0, count = count(); record < count; record++) {
+                all.add(materialize(record));
+            }
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pages in registration number order. Records are kept in creation
+     * order, so each page is a bounded top-N selection over all of them,
+     * O(students * log pageSize).
+     */
+    @Override
+    public Page<Student> getStudents(String pageToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        lock.readLock().lock();
+        try {
+            TreeMap<String, Integer> smallest = new TreeMap<>();
+            for (int record = 0, count = count(); record < count; record++) {
+                String regNo = regNoAt(record);
+                if (pageToken == null || regNo.compareTo(pageToken) > 0) {
+                    smallest.put(regNo, record);
+                    if (smallest.size() > pageSize + 1) {
+                        smallest.pollLastEntry();
+                    }
+                }
+            }
+            boolean hasNext = smallest.size() > pageSize;
+            if (hasNext) {
+                smallest.pollLastEntry();
+            }
+            List<Student> items = new ArrayList<>(smallest.size());
+            smallest.values().forEach(record -> items.add(materialize(record)));
+            return new Page<>(items, hasNext ? smallest.lastKey() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams students in creation order, reading each record as the stream
+     * is consumed.
+     */
+    @Override
+    public Stream<Student> streamStudents() {
+        lock.readLock().lock();
+        try {
+            return IntStream.range(0, count()).mapToObj(this::read);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Student> getActiveStudents() {
+        lock.readLock().lock();
+        try {
+            List<Student> active = new ArrayList<>(buffer.getInt(ACTIVE_COUNT_OFFSET));
+            for (int record = 0, count = count(); record < count; record++) {
+                if ((buffer.get(offset(record) + FLAGS) & ACTIVE) != 0) {
+                    active.add(materialize(record));
+                }
+            }
+            return active;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getActiveStudentCount() {
+        lock.readLock().lock();
+        try {
+            return buffer.getInt(ACTIVE_COUNT_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateStudent(Student student) {
+        Objects.requireNonNull(student, "Student cannot be null");
+        lock.writeLock().lock();
+        try {
+            int record = byRegNo.find(student.getRegNo());
+            if (record < 0) {
+                throw new IllegalArgumentException("Student not found");
+            }
+            write(record, student);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deactivateStudent(String regNo) {
+        lock.writeLock().lock();
+        try {
+            int record = regNo != null ? byRegNo.find(regNo) : -1;
+            if (record >= 0) {
+                setActive(record, false);
+                buffer.putLong(offset(record) + UPDATED_AT, epochSecond(LocalDateTime.now()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the generator used for new student IDs.
+     */
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Returns the number of students the table can hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Forces all changes to the mapped file to the storage device.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the record number of a registration number, or -1. Used by
+     * {@link MappedEnrollmentService} to key its tables by record.
+     */
+    int recordOf(String regNo) {
+        lock.readLock().lock();
+        try {
+            return byRegNo.find(regNo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the registration number stored in a record.
+     */
+    String regNoOf(int record) {
+        lock.readLock().lock();
+        try {
+            return regNoAt(record);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the student stored in a record.
+     */
+    Student read(int record) {
+        lock.readLock().lock();
+        try {
+            return materialize(record);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a new student into the next free record and indexes it. Caller
+     * must hold the write lock and have checked for duplicates and space.
+     */
+    private void append(Student student) {
+        int count = count();
+        // The record lies past the count until the end, so a field that does not fit leaves the table unchanged
+        int record = count;
+        int at = offset(record);
+        MappedRecords.putString(buffer, at + REG_NO, REG_NO_BYTES, student.getRegNo(), "Registration number");
+        MappedRecords.putString(buffer, at + FULL_NAME, NAME_BYTES, student.getFullName(), "Full name");
+        MappedRecords.putString(buffer, at + EMAIL, EMAIL_BYTES, student.getEmail(), "Email");
+        buffer.putLong(at + ID, student.getIdValue());
+        buffer.putLong(at + CREATED_AT, epochSecond(student.getCreatedAt()));
+        buffer.putLong(at + UPDATED_AT, epochSecond(student.getUpdatedAt()));
+        buffer.put(at + FLAGS, (byte) (student.isActive() ? ACTIVE : 0));
+        byRegNo.insert(student.getRegNo(), record);
+        byEmail.insert(emailKey(student.getEmail()), record);
+        buffer.putInt(COUNT_OFFSET, count + 1);
+        if (student.isActive()) {
+            buffer.putInt(ACTIVE_COUNT_OFFSET, buffer.getInt(ACTIVE_COUNT_OFFSET) + 1);
+        }
+    }
+
+    private void onStudentChanged(Person person, Person.Property property, Object oldValue, Object newValue) {
+        if (!(person instanceof Student student)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int record = byRegNo.find(student.getRegNo());
+            if (record < 0 || buffer.getLong(offset(record) + ID) != student.getIdValue()) {
+                return;
+            }
+            // Only the property that changed, so a stale copy cannot undo other changes
+            switch (property) {
+                case FULL_NAME -> MappedRecords.putEncoded(buffer, offset(record) + FULL_NAME,
+                    MappedRecords.encode((String) newValue, NAME_BYTES, "Full name"));
+                case EMAIL -> {
+                    String email = (String) newValue;
+                    writeEmail(record, email, MappedRecords.encode(email, EMAIL_BYTES, "Email"));
+                }
+                case ACTIVE -> setActive(record, (Boolean) newValue);
+            }
+            buffer.putLong(offset(record) + UPDATED_AT, epochSecond(LocalDateTime.now()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a student from a record and subscribes to its changes.
+     * Caller must hold a lock.
+     */
+    private Student materialize(int record) {
+        int at = offset(record);
+        Student student = new Student(buffer.getLong(at + ID), regNoAt(record),
+            MappedRecords.getString(buffer, at + FULL_NAME), emailAt(record),
+            dateTime(buffer.getLong(at + CREATED_AT)), dateTime(buffer.getLong(at + UPDATED_AT)));
+        if ((buffer.get(at + FLAGS) & ACTIVE) == 0) {
+            student.setActive(false);
+        }
+        student.addListener(writeBack);
+        return student;
+    }
+
+    /**
+     * Copies a student's name, email and status into its record, keeping the
+     * email index and active count in step. Caller must hold the write lock.
+     */
+    private void write(int record, Student student) {
+        int at = offset(record);
+        // Encode both fields first, so an oversized one leaves the record unchanged
+        byte[] name = MappedRecords.encode(student.getFullName(), NAME_BYTES, "Full name");
+        byte[] email = MappedRecords.encode(student.getEmail(), EMAIL_BYTES, "Email");
+        MappedRecords.putEncoded(buffer, at + FULL_NAME, name);
+        writeEmail(record, student.getEmail(), email);
+        setActive(record, student.isActive());
+        buffer.putLong(at + UPDATED_AT, epochSecond(student.getUpdatedAt()));
+    }
+
+    /**
+     * Writes an email, already encoded, into a record and moves it in the
+     * email index. As in {@link DefaultStudentService}, an email changed to
+     * one already taken stays indexed to its first owner; the header counts
+     * such shared records, and when the owner moves off the email, the
+     * records are scanned for another holder to index in its place. Caller
+     * must hold the write lock.
+     */
+    private void writeEmail(int record, String newEmail, byte[] email) {
+        int at = offset(record);
+        String oldEmail = emailAt(record);
+        if (!Objects.equals(oldEmail, newEmail)) {
+            String oldKey = oldEmail != null ? emailKey(oldEmail) : null;
+            String newKey = newEmail != null ? emailKey(newEmail) : null;
+            if (Objects.equals(oldKey, newKey)) {
+                // Only the case changed; the index reads the key back from the record
+                MappedRecords.putEncoded(buffer, at + EMAIL, email);
+            } else {
+                if (oldKey != null) {
+                    releaseEmail(oldKey, record);
+                }
+                MappedRecords.putEncoded(buffer, at + EMAIL, email);
+                if (newKey != null && !byEmail.insert(newKey, record)) {
+                    addSharedEmails(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a record off an email key. If it owned the key and other records
+     * share the email, the first of them takes over. Caller must hold the
+     * write lock, with the record still holding the old email.
+     */
+    private void releaseEmail(String emailKey, int record) {
+        if (byEmail.find(emailKey) != record) {
+            // A shared record; files written before the count was kept start at zero
+            if (buffer.getInt(SHARED_EMAILS_OFFSET) > 0) {
+                addSharedEmails(-1);
+            }
+            return;
+        }
+        byEmail.remove(emailKey, record);
+        if (buffer.getInt(SHARED_EMAILS_OFFSET) == 0) {
+            return;
+        }
+        for (int other = 0; other < count(); other++) {
+            String otherEmail = other != record ? emailAt(other) : null;
+            if (otherEmail != null && emailKey(otherEmail).equals(emailKey)) {
+                byEmail.insert(emailKey, other);
+                addSharedEmails(-1);
+                return;
+            }
+        }
+    }
+
+    private void addSharedEmails(int delta) {
+        buffer.putInt(SHARED_EMAILS_OFFSET, buffer.getInt(SHARED_EMAILS_OFFSET) + delta);
+    }
+
+    /**
+     * Caller must hold the write lock.
+     */
+    private void setActive(int record, boolean active) {
+        int at = offset(record);
+        byte flags = buffer.get(at + FLAGS);
+        if (((flags & ACTIVE) != 0) == active) {
+            return;
+        }
+        buffer.put(at + FLAGS, (byte) (active ? flags | ACTIVE : flags & ~ACTIVE));
+        buffer.putInt(ACTIVE_COUNT_OFFSET, buffer.getInt(ACTIVE_COUNT_OFFSET) + (active ? 1 : -1));
+    }
+
+    private int count() {
+        return buffer.getInt(COUNT_OFFSET);
+    }
+
+    private int offset(int record) {
+        return recordsOffset + record * RECORD_BYTES;
+    }
+
+    private String regNoAt(int record) {
+        return MappedRecords.getString(buffer, offset(record) + REG_NO);
+    }
+
+    private String emailAt(int record) {
+        return MappedRecords.getString(buffer, offset(record) + EMAIL);
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime dateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower-cases a name and collapses runs of whitespace to single spaces.
+     */
+    private static String nameKey(String name) {
+        if (name == null) {
+            return "";
+        }
+        return String.join(" ", name.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+    }
+}
@@ -0,0 +1,30 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.service.Page;
+import java.util.*;
+
+/**
+ * Builds pages over a key-ordered map. The continuation token is the key of
+ * the last item returned, so a page is found with a single seek and paging
+ * stays stable while entries are added or removed between calls.
+ */
+final class Pages {
+    private Pages() {
+    }
+
+    static <T> Page<T> after(NavigableMap<String, T> map, String pageToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        NavigableMap<String, T> tail = pageToken == null ? map : map.tailMap(pageToken, false);
+        Iterator<Map.Entry<String, T>> entries = tail.entrySet().iterator();
+        List<T> items = new ArrayList<>();
+        String lastKey = null;
+        while (items.size() < pageSize && entries.hasNext()) {
+            Map.Entry<String, T> entry = entries.next();
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new Page<>(items, entries.hasNext() ? lastKey : null);
+    }
+}
@@ -0,0 +1,110 @@
+package edu.ccrm.service.impl;
+
+import edu.ccrm.domain.Student;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Seat accounting and FIFO waitlist for one course.
+ * Seats are claimed with a compare-and-set loop on an atomic counter, so
+ * concurrent registrations for the same course never block each other.
+ */
+class SeatLedger {
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+    private final ConcurrentLinkedDeque<Student> waitlist = new ConcurrentLinkedDeque<>();
+    private final Set<String> waitlisted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Claims a seat if one is free.
+     *
+     * @param capacity the course capacity; zero or less means unlimited
+     * @return true if a seat was claimed
+     */
+    boolean tryAcquire(int capacity) {
+        while (true) {
+            int taken = seatsTaken.get();
+            if (capacity > 0 && taken >= capacity) {
+                return false;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Claims a seat regardless of capacity, for enrollments restored from storage.
+     */
+    void acquire() {
+        seatsTaken.incrementAndGet();
+    }
+
+    void release() {
+        seatsTaken.decrementAndGet();
+    }
+
+    boolean hasFreeSeat(int capacity) {
+        return capacity <= 0 || seatsTaken.get() < capacity;
+    }
+
+    int seatsTaken() {
+        return seatsTaken.get();
+    }
+
+    /**
+     * Appends a student to the waitlist unless already queued.
+     *
+     * @return true if the student was added
+     */
+    boolean enqueue(Student student) {
+        if (!waitlisted.add(student.getRegNo())) {
+            return false;
+        }
+        waitlist.offerLast(student);
+        return true;
+    }
+
+    /**
+     * Takes the student at the head of the waitlist, or null if it is empty.
+     */
+    Student poll() {
+        Student student = waitlist.pollFirst();
+        if (student != null) {
+            waitlisted.remove(student.getRegNo());
+        }
+        return student;
+    }
+
+    /**
+     * Puts a polled student back at the head of the waitlist.
+     */
+    void requeue(Student student) {
+        if (waitlisted.add(student.getRegNo())) {
+            waitlist.offerFirst(student);
+        }
+    }
+
+    boolean isWaitlisted(Student student) {
+        return waitlisted.contains(student.getRegNo());
+    }
+
+    boolean removeFromWaitlist(Student student) {
+        if (!waitlisted.remove(student.getRegNo())) {
+            return false;
+        }
+        waitlist.remove(student);
+        return true;
+    }
+
+    boolean hasWaitlist() {
+        return !waitlist.isEmpty();
+    }
+
+    List<Student> waitlist() {
+        return new ArrayList<>(waitlist);
+    }
+}
@@ -0,0 +1,10 @@
+package edu.ccrm.util;
+
+/**
+ * Exception thrown when a course has no free seats and the student was waitlisted instead.
+ */
+public class CourseFullException extends RuntimeException {
+    public CourseFullException(String message) {
+        super(message);
+    }
+}
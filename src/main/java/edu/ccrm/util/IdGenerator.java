@@ -0,0 +1,30 @@
+package edu.ccrm.util;
+
+/**
+ * Source of unique entity IDs. IDs are held as primitive longs and rendered
+ * as fixed-width strings only for display and persistence.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+    long nextId();
+
+    /**
+     * Renders an ID as 16 lower-case hex digits, so string order matches numeric order.
+     */
+    static String format(long id) {
+        String hex = Long.toHexString(id);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    /**
+     * Parses an ID rendered by {@link #format}.
+     *
+     * @throws NumberFormatException if the text is not 16 hex digits
+     */
+    static long parse(String text) {
+        if (text == null || text.length() != 16) {
+            throw new NumberFormatException("Not a 16-digit hex ID: " + text);
+        }
+        return Long.parseUnsignedLong(text, 16);
+    }
+}
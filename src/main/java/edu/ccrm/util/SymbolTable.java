@@ -0,0 +1,74 @@
+package edu.ccrm.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only dictionary that interns strings to small int codes.
+ * Codes are assigned densely from zero in first-seen order and never reused,
+ * so a code can be stored in place of the string and compared with ==.
+ *
+ * <p>Safe for concurrent use. Lookups in either direction are lock-free;
+ * only the first intern of a new value takes a lock.
+ */
+public class SymbolTable {
+    /**
+     * Code standing for a null value.
+     */
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Returns the code for a value, assigning the next free code if the value is new.
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            // Store the value before publishing its code
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the code for a value without assigning one.
+     *
+     * @return the code, or {@link #NONE} if the value is null or was never interned
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * Returns the canonical string for a code, or null for {@link #NONE}.
+     */
+    public String valueOf(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}